@@ -7,7 +7,6 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import android.app.Activity;
 import android.app.AlarmManager;
@@ -28,6 +27,7 @@ import android.view.View;
 import android.view.ViewGroup.LayoutParams;
 import android.view.ViewStub;
 import android.widget.Button;
+import android.widget.GridView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
@@ -38,25 +38,32 @@ import com.actionbarsherlock.app.SherlockActivity;
 import com.actionbarsherlock.view.Menu;
 import com.actionbarsherlock.view.MenuInflater;
 import com.actionbarsherlock.view.MenuItem;
+import com.nolanlawson.keepscore.data.GameEventLog;
 import com.nolanlawson.keepscore.data.RecordedChange;
 import com.nolanlawson.keepscore.data.RecordedChange.Type;
+import com.nolanlawson.keepscore.data.ScoreboardAdapter;
+import com.nolanlawson.keepscore.db.BackgroundGameSaver;
 import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.GameCache;
 import com.nolanlawson.keepscore.db.GameDBHelper;
 import com.nolanlawson.keepscore.db.PlayerScore;
+import com.nolanlawson.keepscore.helper.AutosaveScheduler;
 import com.nolanlawson.keepscore.helper.ColorScheme;
 import com.nolanlawson.keepscore.helper.CompatibilityHelper;
+import com.nolanlawson.keepscore.helper.LatencyTracker;
+import com.nolanlawson.keepscore.helper.LatencyTracker.Operation;
 import com.nolanlawson.keepscore.helper.PlayerTextFormat;
 import com.nolanlawson.keepscore.helper.PreferenceHelper;
 import com.nolanlawson.keepscore.helper.VersionHelper;
 import com.nolanlawson.keepscore.util.Callback;
 import com.nolanlawson.keepscore.util.CollectionUtil;
 import com.nolanlawson.keepscore.util.CollectionUtil.Function;
-import com.nolanlawson.keepscore.util.DataExpiringStack;
 import com.nolanlawson.keepscore.util.Functions;
 import com.nolanlawson.keepscore.util.Pair;
 import com.nolanlawson.keepscore.util.StopWatch;
 import com.nolanlawson.keepscore.util.UtilLogger;
 import com.nolanlawson.keepscore.widget.PlayerView;
+import com.nolanlawson.keepscore.widget.ViewUpdateScheduler;
 
 /**
  * Main activity when the user is playing a game.
@@ -72,11 +79,21 @@ public class GameActivity extends SherlockActivity {
 
     public static final int REQUEST_CODE_ADD_EDIT_PLAYERS = 2;
 
-    private static final long PERIODIC_SAVE_PERIOD = TimeUnit.SECONDS.toMillis(30);
-
     // how many changes to keep in memory?
     private static final int UNDO_STACK_SIZE = 500;
 
+    // how long leaving the game screen may wait for the save to be committed
+    private static final long PAUSE_FLUSH_TIMEOUT = 500;
+
+    // how long replacing the players may wait (in the background) for the old game's saves before deleting it
+    private static final long DELETE_FLUSH_TIMEOUT = 2000;
+
+    // how long reopening a game may wait for its last saves, so that the cached copy includes them
+    private static final long LOAD_FLUSH_TIMEOUT = 2000;
+
+    // beyond this, the players are shown in a scrolling scoreboard rather than all at once
+    private static final int MAX_PLAYERS_FOR_FIXED_LAYOUT = 8;
+
     @SuppressWarnings("unchecked")
     private static final Set<Pair<Type, Type>> ACCEPTABLE_UNDO_TRANSITIONS = new HashSet<Pair<Type, Type>>(
             Arrays.asList(Pair.create(Type.ModifyLast, Type.ModifyLast), Pair.create(Type.ModifyLast, Type.AddNew),
@@ -102,13 +119,37 @@ public class GameActivity extends SherlockActivity {
     private PowerManager.WakeLock wakeLock;
 
     private List<PlayerView> playerViews;
+    private GridView scoreboardGridView;
+    private int highlightedPlayerIdx = -1;
     private Handler handler = new Handler(Looper.getMainLooper());
-    private boolean paused = true;
     private GameDBHelper dbHelper;
     private boolean savedGameBeforeExit;
 
-    private DataExpiringStack<RecordedChange> undoStack = new DataExpiringStack<RecordedChange>(UNDO_STACK_SIZE);
-    private DataExpiringStack<RecordedChange> redoStack = new DataExpiringStack<RecordedChange>(UNDO_STACK_SIZE);
+    private GameEventLog eventLog;
+    
+    // one pass over all the changed PlayerViews per frame, then the round totals and highlighted player
+    private ViewUpdateScheduler updateScheduler = new ViewUpdateScheduler(handler, new Runnable() {
+
+        @Override
+        public void run() {
+            updateRoundTotalViewText();
+            updateHighlightedPlayer();
+        }
+    });
+
+    // saves after bursts of input rather than on a fixed timer
+    private AutosaveScheduler autosaveScheduler = new AutosaveScheduler(handler, new AutosaveScheduler.Saver() {
+
+        @Override
+        public boolean needsSave() {
+            return shouldAutosave();
+        }
+
+        @Override
+        public void save() {
+            saveGame(game, true, null);
+        }
+    });
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -119,7 +160,7 @@ public class GameActivity extends SherlockActivity {
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         wakeLock = powerManager.newWakeLock(PowerManager.FULL_WAKE_LOCK, getPackageName());
 
-        setContentView(R.layout.game);
+        setContentView(useScoreboard() ? R.layout.game_scoreboard : R.layout.game);
         setUpWidgets();
         scheduleAutomaticBackup();
     }
@@ -140,10 +181,10 @@ public class GameActivity extends SherlockActivity {
             wakeLock.release();
         }
 
-        paused = true;
+        autosaveScheduler.stop();
 
         if (shouldAutosave()) {
-            saveGame(game, false, null);
+            saveGameOnPause();
         }
 
         if (dbHelper != null) {
@@ -168,7 +209,7 @@ public class GameActivity extends SherlockActivity {
             wakeLock.acquire();
         }
 
-        startPeriodicSave();
+        autosaveScheduler.start();
 
         updateRoundTotalViewText();
 
@@ -178,7 +219,6 @@ public class GameActivity extends SherlockActivity {
 
         setPlayerViewTextSizes();
 
-        paused = false;
         savedGameBeforeExit = false;
 
         getSupportActionBar().hide();
@@ -217,32 +257,6 @@ public class GameActivity extends SherlockActivity {
         return dbHelper;
     }
 
-    private void startPeriodicSave() {
-        handler.postDelayed(new Runnable() {
-
-            @Override
-            public void run() {
-                if (shouldAutosave()) {
-                    saveGame(game, true, new Runnable() {
-
-                        @Override
-                        public void run() {
-                            if (!paused) {
-                                startPeriodicSave();
-                            }
-                        }
-                    });
-                } else {
-                    log.d("no need to do periodic save");
-                    if (!paused) {
-                        startPeriodicSave();
-                    }
-                }
-            }
-        }, PERIODIC_SAVE_PERIOD);
-
-    }
-
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getSupportMenuInflater();
@@ -257,8 +271,8 @@ public class GameActivity extends SherlockActivity {
         MenuItem undoMenuItem = menu.findItem(R.id.menu_undo);
         MenuItem redoMenuItem = menu.findItem(R.id.menu_redo);
 
-        boolean showUndo = !undoStack.isEmpty();
-        boolean showRedo = !redoStack.isEmpty();
+        boolean showUndo = eventLog.canUndo();
+        boolean showRedo = eventLog.canRedo();
 
         undoMenuItem.setEnabled(showUndo);
         redoMenuItem.setEnabled(showRedo);
@@ -272,7 +286,16 @@ public class GameActivity extends SherlockActivity {
         switch (item.getItemId()) {
         case R.id.menu_history:
             Intent historyIntent = new Intent(this, HistoryActivity.class);
-            historyIntent.putExtra(HistoryActivity.EXTRA_GAME, game);
+            if (gameWasSaved()) {
+                // any unsaved changes will be saved when this activity is paused, so the history screen just needs
+                // to avoid the outdated cached copy
+                if (shouldAutosave()) {
+                    GameCache.invalidate(game.getId());
+                }
+                historyIntent.putExtra(HistoryActivity.EXTRA_GAME_ID, game.getId());
+            } else {
+                historyIntent.putExtra(HistoryActivity.EXTRA_GAME, game);
+            }
             startActivity(historyIntent);
             break;
         case R.id.menu_settings:
@@ -297,25 +320,17 @@ public class GameActivity extends SherlockActivity {
 
     private void undoOrRedo(boolean undo) {
 
-        DataExpiringStack<RecordedChange> stackToPoll = undo ? undoStack : redoStack;
-        DataExpiringStack<RecordedChange> stackToPop = !undo ? undoStack : redoStack;
+        long startTime = LatencyTracker.start();
 
         RecordedChange recordedChange = null;
         int lastPlayerNumber = -1;
         RecordedChange.Type lastType = null;
-        while ((recordedChange = stackToPoll.peek()) != null
+        while ((recordedChange = (undo ? eventLog.peekUndo() : eventLog.peekRedo())) != null
                 && (lastPlayerNumber == -1 || lastPlayerNumber == recordedChange.getPlayerNumber())
                 // only apply multiple changes to the same PlayerScore
                 && (lastType == null || isAcceptableUndoOrRedoTransition(undo, lastType, recordedChange.getType()))) {
 
-            recordedChange = stackToPoll.poll();
-            PlayerView playerView = playerViews.get(recordedChange.getPlayerNumber());
-            if (undo) {
-                playerView.revertChange(recordedChange);
-            } else {
-                playerView.reexecuteChange(recordedChange);
-            }
-            stackToPop.pop(recordedChange);
+            recordedChange = undo ? eventLog.undo() : eventLog.redo();
 
             lastPlayerNumber = recordedChange.getPlayerNumber();
             lastType = recordedChange.getType();
@@ -324,7 +339,11 @@ public class GameActivity extends SherlockActivity {
         if (lastPlayerNumber != -1) {
             PlayerView playerView = playerViews.get(lastPlayerNumber);
             playerView.resetLastIncremented(); // keeps the badge from showing
-            playerView.updateViews();
+            playerView.getShouldAutosave().set(true);
+            playerView.scheduleUpdate();
+            autosaveScheduler.onInput();
+            LatencyTracker.recordOnNextFrame(playerView.isAttached() ? playerView.getScoreTextView() : rootLayout,
+                    Operation.Undo, startTime);
         }
     }
 
@@ -365,40 +384,48 @@ public class GameActivity extends SherlockActivity {
 
         ColorScheme colorScheme = PreferenceHelper.getColorScheme(this);
 
-        int foregroundColor = getResources().getColor(colorScheme.getForegroundColorResId());
         int backgroundColor = getResources().getColor(colorScheme.getBackgroundColorResId());
-        int dividerColor = getResources().getColor(colorScheme.getDividerColorResId());
         
         rootLayout.setBackgroundColor(backgroundColor);
         for (PlayerView playerView : playerViews) {
-            playerView.getNameTextView().setTextColor(foregroundColor);
-            playerView.getNameTextView().setTypeface(colorScheme.getPlayerNameTypeface());
-            playerView.getScoreTextView().setTextColor(foregroundColor);
-
             playerView.setNewColorScheme(colorScheme);
-
-            playerView.getDivider1().setBackgroundColor(dividerColor);
-            if (playerView.getDivider2() != null) {
-                playerView.getDivider2().setBackgroundColor(dividerColor);
-            }
-            
-            for (Button button : new Button[] { playerView.getPlusButton(), playerView.getMinusButton(),
-                    playerView.getDeltaButton1(), playerView.getDeltaButton2(), playerView.getDeltaButton3(),
-                    playerView.getDeltaButton4(), }) {
-                if (button != null) {
-                    button.setBackgroundDrawable(getResources().getDrawable(
-                            colorScheme.getButtonBackgroundDrawableResId()));
-                    button.setTextColor(getResources().getColor(colorScheme.getForegroundColorResId()));
-                }
+            if (playerView.isAttached()) {
+                // detached views get colored when they scroll into view
+                setPlayerViewColorScheme(playerView, colorScheme);
             }
-
-            playerView.updateViews();
         }
         if (roundTotalTextView != null) {
             roundTotalTextView.setTextColor(getResources().getColor(colorScheme.getForegroundColorResId()));
         }
     }
 
+    private void setPlayerViewColorScheme(PlayerView playerView, ColorScheme colorScheme) {
+
+        int foregroundColor = getResources().getColor(colorScheme.getForegroundColorResId());
+        int dividerColor = getResources().getColor(colorScheme.getDividerColorResId());
+
+        playerView.getNameTextView().setTextColor(foregroundColor);
+        playerView.getNameTextView().setTypeface(colorScheme.getPlayerNameTypeface());
+        playerView.getScoreTextView().setTextColor(foregroundColor);
+
+        playerView.getDivider1().setBackgroundColor(dividerColor);
+        if (playerView.getDivider2() != null) {
+            playerView.getDivider2().setBackgroundColor(dividerColor);
+        }
+        
+        for (Button button : new Button[] { playerView.getPlusButton(), playerView.getMinusButton(),
+                playerView.getDeltaButton1(), playerView.getDeltaButton2(), playerView.getDeltaButton3(),
+                playerView.getDeltaButton4(), }) {
+            if (button != null) {
+                button.setBackgroundDrawable(getResources().getDrawable(
+                        colorScheme.getButtonBackgroundDrawableResId()));
+                button.setTextColor(getResources().getColor(colorScheme.getForegroundColorResId()));
+            }
+        }
+
+        playerView.updateViews();
+    }
+
     private void createRematchGame() {
 
         saveGame(game, true, null); // save the original game
@@ -406,6 +433,7 @@ public class GameActivity extends SherlockActivity {
         for (PlayerView playerView : playerViews) {
             playerView.cancelPendingUpdates();
         }
+        updateScheduler.cancel();
 
         game = game.makeCleanCopy();
         playerScores = game.getPlayerScores();
@@ -415,11 +443,10 @@ public class GameActivity extends SherlockActivity {
         for (PlayerView playerView : playerViews) {
             playerView.reset(GameActivity.this);
         }
+        eventLog = new GameEventLog(game, UNDO_STACK_SIZE);
         saveGame(game, true, null); // save the new game
 
         updateRoundTotalViewText();
-        undoStack.clear();
-        redoStack.clear();
 
         Toast.makeText(this, R.string.toast_rematch_created, Toast.LENGTH_SHORT).show();
     }
@@ -456,6 +483,12 @@ public class GameActivity extends SherlockActivity {
             log.d("unparceled game is: %s", game);
         }
 
+        if (gameWasSaved()) {
+            eventLog = getDbHelper().findEventLog(game, UNDO_STACK_SIZE);
+        } else {
+            eventLog = new GameEventLog(game, UNDO_STACK_SIZE);
+        }
+
         log.d("loaded game: %s", game);
         log.d("loaded playerScores: %s", playerScores);
     }
@@ -463,7 +496,11 @@ public class GameActivity extends SherlockActivity {
     private void createExistingGameFromId() {
         int gameId = getIntent().getIntExtra(EXTRA_GAME_ID, 0);
 
-        game = getDbHelper().findGameById(gameId);
+        // the previous game screen may still be saving this game in the background
+        BackgroundGameSaver.flush(LOAD_FLUSH_TIMEOUT);
+
+        // the cached copy is shared, so this activity needs its own
+        game = (Game) GameCache.getOrLoad(getDbHelper(), gameId).clone();
         playerScores = game.getPlayerScores();
     }
 
@@ -495,8 +532,36 @@ public class GameActivity extends SherlockActivity {
         log.d("created new playerScores: %s", playerScores);
     }
 
+    /**
+     * Save the game without making the user wait for the whole thing to be written.  Only the changes since the last
+     * save are handed off to the background saver, which is then given a short time to finish.  If it doesn't, the
+     * save carries on in the background.
+     */
+    private void saveGameOnPause() {
+
+        for (PlayerView playerView : playerViews) {
+            playerView.getShouldAutosave().set(false);
+        }
+
+        if (eventLog.getGame() != game) {
+            // shouldn't happen, but better to block than to lose the game
+            saveGame(game, false, null);
+            return;
+        }
+
+        BackgroundGameSaver.save(this, eventLog);
+        savedGameBeforeExit = true;
+
+        if (!BackgroundGameSaver.flush(PAUSE_FLUSH_TIMEOUT)) {
+            log.i("game is still being saved in the background");
+        }
+    }
+
     private synchronized void saveGame(final Game gameToSave, boolean inBackground, final Runnable onFinished) {
 
+        // the event log may be replaced (e.g. by a rematch) before the save actually happens
+        final GameEventLog eventLogToSave = (eventLog.getGame() == gameToSave) ? eventLog : null;
+
         for (PlayerView playerView : playerViews) {
             playerView.getShouldAutosave().set(false);
         }
@@ -508,7 +573,7 @@ public class GameActivity extends SherlockActivity {
                 @Override
                 protected Void doInBackground(Void... params) {
 
-                    saveGame(gameToSave);
+                    saveGame(gameToSave, eventLogToSave);
 
                     return null;
                 }
@@ -525,26 +590,41 @@ public class GameActivity extends SherlockActivity {
         } else {
             // do in foreground to ensure the game gets saved before the
             // activity finishes
-            saveGame(gameToSave);
+            saveGame(gameToSave, eventLogToSave);
             if (onFinished != null) {
                 onFinished.run();
             }
         }
     }
 
-    private synchronized void saveGame(Game gameToSave) {
+    private synchronized void saveGame(Game gameToSave, GameEventLog eventLogToSave) {
         StopWatch stopWatch = new StopWatch("saveGame()");
+        long startTime = LatencyTracker.start();
 
-        getDbHelper().saveGame(gameToSave);
+        if (eventLogToSave != null) {
+            // only store what has changed since the last save
+            getDbHelper().saveGame(eventLogToSave);
+        } else {
+            getDbHelper().saveGame(gameToSave);
+        }
         log.d("saved game: %s", gameToSave);
         savedGameBeforeExit = true;
 
+        LatencyTracker.record(Operation.Autosave, startTime);
+
         stopWatch.log(log);
     }
 
     private void setUpWidgets() {
 
         rootLayout = (LinearLayout) findViewById(R.id.game_root_layout);
+        setUpRoundTotalView();
+
+        if (useScoreboard()) {
+            setUpScoreboardWidgets();
+            return;
+        }
+
         rowLayout2 = (LinearLayout) findViewById(R.id.game_row_2);
         rowLayout3 = (LinearLayout) findViewById(R.id.game_row_3);
         rowLayout4 = (LinearLayout) findViewById(R.id.game_row_4);
@@ -560,19 +640,6 @@ public class GameActivity extends SherlockActivity {
         rootPadding1.setVisibility(playerScores.size() <= 2 ? View.VISIBLE : View.GONE);
         rootPadding2.setVisibility(playerScores.size() <= 2 ? View.VISIBLE : View.GONE);
 
-        // inflate the round total view stub if we're in Eclair (due to an
-        // Eclair bug), or
-        // if the round totals are enabled
-        try {
-            roundTotalViewStub = (ViewStub) findViewById(R.id.round_totals);
-            int versionInt = VersionHelper.getVersionSdkIntCompat();
-            if (versionInt > VersionHelper.VERSION_DONUT && versionInt < VersionHelper.VERSION_FROYO) {
-                roundTotalTextView = (TextView) roundTotalViewStub.inflate();
-            }
-        } catch (ClassCastException ignore) {
-            // view stub already inflated
-        }
-
         playerViews = new ArrayList<PlayerView>();
 
         // only show the onscreen delta buttons if space allows
@@ -586,32 +653,7 @@ public class GameActivity extends SherlockActivity {
             View view = getPlayerScoreView(resId);
 
             PlayerView playerView = new PlayerView(this, view, playerScore, handler, showOnscreenDeltaButtons);
-
-            playerView.setChangeRecorder(new Callback<RecordedChange>() {
-
-                @Override
-                public void onCallback(RecordedChange recordedChange) {
-                    undoStack.pop(recordedChange);
-                    redoStack.clear();
-                }
-            });
-            playerView.setOnChangeListener(new Runnable() {
-
-                @Override
-                public void run() {
-                    updateRoundTotalViewText();
-                    updateHighlightedPlayer();
-                }
-            });
-
-            // set to autosave if the player names are filled in. This feels
-            // intuitive to me. There's no point
-            // in saving an empty game, but if the player names are included,
-            // the game feels non-empty and therefore
-            // worth saving. This only applies for newly created games.
-            if (game.getId() == -1 && !TextUtils.isEmpty(playerScore.getName())) {
-                playerView.getShouldAutosave().set(true);
-            }
+            setUpPlayerView(playerView, playerScore);
 
             playerViews.add(playerView);
         }
@@ -628,6 +670,89 @@ public class GameActivity extends SherlockActivity {
         }
     }
 
+    /**
+     * With lots of players, inflating a player_score layout for every player would make the game screen slow to
+     * open and impossible to fit on screen.  Instead, the PlayerViews start out detached, and the scoreboard
+     * attaches them to recycled cells as they scroll into view.
+     */
+    private void setUpScoreboardWidgets() {
+
+        playerViews = new ArrayList<PlayerView>();
+
+        for (PlayerScore playerScore : playerScores) {
+            PlayerView playerView = new PlayerView(this, playerScore, handler, false);
+            setUpPlayerView(playerView, playerScore);
+            playerViews.add(playerView);
+        }
+
+        scoreboardGridView = (GridView) findViewById(R.id.game_scoreboard);
+        scoreboardGridView.setAdapter(new ScoreboardAdapter(this, playerViews, getResources().getDimensionPixelSize(
+                R.dimen.player_scoreboard_cell_height), new Callback<PlayerView>() {
+
+            @Override
+            public void onCallback(PlayerView playerView) {
+                styleAttachedPlayerView(playerView);
+            }
+        }));
+    }
+
+    private void setUpPlayerView(PlayerView playerView, PlayerScore playerScore) {
+        playerView.setChangeRecorder(new Callback<RecordedChange>() {
+
+            @Override
+            public void onCallback(RecordedChange recordedChange) {
+                eventLog.record(recordedChange);
+                autosaveScheduler.onInput();
+            }
+        });
+        playerView.setOnHistoryConfirmed(new Runnable() {
+
+            @Override
+            public void run() {
+                autosaveScheduler.onChangesConfirmed();
+            }
+        });
+        playerView.setUpdateScheduler(updateScheduler);
+
+        // set to autosave if the player names are filled in. This feels
+        // intuitive to me. There's no point
+        // in saving an empty game, but if the player names are included,
+        // the game feels non-empty and therefore
+        // worth saving. This only applies for newly created games.
+        if (game.getId() == -1 && !TextUtils.isEmpty(playerScore.getName())) {
+            playerView.getShouldAutosave().set(true);
+        }
+    }
+
+    /**
+     * Apply the current colors, text sizes and highlighting to a PlayerView that has just been attached to a
+     * scoreboard cell.
+     */
+    private void styleAttachedPlayerView(PlayerView playerView) {
+        setPlayerViewColorScheme(playerView, PreferenceHelper.getColorScheme(this));
+        setPlayerViewTextSizes(playerView, PlayerTextFormat.forNumPlayers(playerScores.size()));
+        setPlayerViewHighlighted(playerView, playerViews.indexOf(playerView) == highlightedPlayerIdx);
+    }
+
+    private void setUpRoundTotalView() {
+        // inflate the round total view stub if we're in Eclair (due to an
+        // Eclair bug), or
+        // if the round totals are enabled
+        try {
+            roundTotalViewStub = (ViewStub) findViewById(R.id.round_totals);
+            int versionInt = VersionHelper.getVersionSdkIntCompat();
+            if (versionInt > VersionHelper.VERSION_DONUT && versionInt < VersionHelper.VERSION_FROYO) {
+                roundTotalTextView = (TextView) roundTotalViewStub.inflate();
+            }
+        } catch (ClassCastException ignore) {
+            // view stub already inflated
+        }
+    }
+
+    private boolean useScoreboard() {
+        return playerScores.size() > MAX_PLAYERS_FOR_FIXED_LAYOUT;
+    }
+
     private void updateHighlightedPlayer() {
         // highlight the most recently changed player.  This helps with round-based games
         // (where it's important to know that each player's round has been tallied)
@@ -648,22 +773,28 @@ public class GameActivity extends SherlockActivity {
         }
         
         log.d("updating highlighted player score to idx %s", maxLastUpdateIdx);
+        highlightedPlayerIdx = maxLastUpdateIdx;
         // if none of the player scores are above 0, then this is a game from an older version
         // of KeepScore where we didn't track the lastUpdate, so we don't highlight anything
         
-        boolean disableTagIcon = PreferenceHelper.getBooleanPreference(
-                R.string.CONSTANT_pref_disable_highlight_tag, 
-                R.string.CONSTANT_pref_disable_highlight_tag_default, this);
-        
         for (int i = 0; i < playerViews.size(); i++) {
             PlayerView playerView = playerViews.get(i);
-            boolean highlighted = (!disableTagIcon && (i == maxLastUpdateIdx));
-            
-            // highlight or un-highlight by showing or hiding the bullet
-            ImageView tagImageView = playerView.getTagImageView();
-            tagImageView.setVisibility(highlighted ? View.VISIBLE : View.INVISIBLE);
+            if (playerView.isAttached()) {
+                setPlayerViewHighlighted(playerView, i == maxLastUpdateIdx);
+            }
         }
     }
+
+    private void setPlayerViewHighlighted(PlayerView playerView, boolean highlighted) {
+
+        boolean disableTagIcon = PreferenceHelper.getBooleanPreference(
+                R.string.CONSTANT_pref_disable_highlight_tag, 
+                R.string.CONSTANT_pref_disable_highlight_tag_default, this);
+
+        // highlight or un-highlight by showing or hiding the bullet
+        ImageView tagImageView = playerView.getTagImageView();
+        tagImageView.setVisibility((highlighted && !disableTagIcon) ? View.VISIBLE : View.INVISIBLE);
+    }
     
     private void updateRoundTotalViewText() {
 
@@ -704,7 +835,9 @@ public class GameActivity extends SherlockActivity {
         PlayerTextFormat textFormat = PlayerTextFormat.forNumPlayers(playerScores.size());
 
         for (PlayerView playerView : playerViews) {
-            setPlayerViewTextSizes(playerView, textFormat);
+            if (playerView.isAttached()) {
+                setPlayerViewTextSizes(playerView, textFormat);
+            }
         }
     }
 
@@ -834,21 +967,29 @@ public class GameActivity extends SherlockActivity {
 
         // delete the game and recreate it with the new data
 
+        // no more saves of the old game's events from here on
+        autosaveScheduler.stop();
+        for (PlayerView playerView : playerViews) {
+            playerView.getShouldAutosave().set(false);
+        }
+
         // do in the background to avoid jank
         new AsyncTask<Void, Void, Void>() {
 
             @Override
             protected Void doInBackground(Void... params) {
 
-                // delete the old game before starting new one
-                getDbHelper().deleteGame(game);
-                // after this, because the id is not -1, only UPDATEs will be
-                // performed,
-                // so the delete is clean even if the background saver keeps
-                // running
+                // let any saves of the old game finish first; any that are still left over after the delete are
+                // ignored, since there's no longer a game to add their events to
+                BackgroundGameSaver.flush(DELETE_FLUSH_TIMEOUT);
+                synchronized (GameActivity.this) {
+                    getDbHelper().deleteGame(game);
+                }
 
                 final Game newGame = (Game) game.clone();
                 newGame.setId(-1);
+                newGame.setEventSequence(0); // old events don't apply to the new players
+                newGame.setSnapshotSequence(0);
                 newGame.setPlayerScores(newPlayerScores);
                 for (PlayerScore playerScore : newGame.getPlayerScores()) {
                     playerScore.setId(-1);
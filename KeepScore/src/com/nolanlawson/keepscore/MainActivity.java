@@ -2,13 +2,11 @@ package com.nolanlawson.keepscore;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,9 +24,11 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Editable;
 import android.text.Html;
 import android.text.InputType;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.text.method.LinkMovementMethod;
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
@@ -37,6 +37,7 @@ import android.view.View.OnClickListener;
 import android.view.animation.Animation;
 import android.view.animation.Animation.AnimationListener;
 import android.view.animation.AnimationUtils;
+import android.view.inputmethod.InputMethodManager;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemLongClickListener;
 import android.widget.Button;
@@ -50,9 +51,11 @@ import com.actionbarsherlock.app.SherlockListActivity;
 import com.actionbarsherlock.view.Menu;
 import com.actionbarsherlock.view.MenuInflater;
 import com.actionbarsherlock.view.MenuItem;
+import com.nolanlawson.keepscore.data.GameSelection;
 import com.nolanlawson.keepscore.data.GamesBackupSummaryAdapter;
 import com.nolanlawson.keepscore.data.LoadGamesBackupResult;
 import com.nolanlawson.keepscore.data.SavedGameAdapter;
+import com.nolanlawson.keepscore.data.SavedGameRowCache;
 import com.nolanlawson.keepscore.data.SeparatedListAdapter;
 import com.nolanlawson.keepscore.data.TimePeriod;
 import com.nolanlawson.keepscore.db.Game;
@@ -85,23 +88,36 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     private static Set<String> uriIntentsConfirmedByUser = new HashSet<String>();
     
     private SeparatedListAdapter<SavedGameAdapter> adapter;
+    private SavedGameRowCache rowCache;
     private CustomFastScrollView fastScrollView;
     private LinearLayout buttonRow;
     private Button newGameButton, selectAllButton, deselectAllButton;
     private View spacerView;
+    private EditText searchEditText;
 
     private Integer lastPosition;
-    private Set<Game> lastChecked;
+    
+    // the games the user has checked, and all the games currently in the list
+    private GameSelection selection = new GameSelection();
+    private GameSelection listedGames = new GameSelection();
 
     private boolean selectedMode;
     
     private Handler handler = new Handler(Looper.getMainLooper());
+    private AsyncTask<Void, Void, SortedMap<TimePeriod, List<Game>>> loadGamesTask;
+    private AsyncTask<Void, Void, SortedMap<TimePeriod, List<Game>>> searchTask;
+    
+    // every saved game, newest first, as of the last load; replaced rather than modified, so it can be filtered in
+    // the background
+    private List<Game> loadedGames = Collections.emptyList();
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         log.d("onCreate()");
         
+        adapter = new SeparatedListAdapter<SavedGameAdapter>(this);
+        rowCache = new SavedGameRowCache(this);
         setListAdapter(adapter);
 
         setContentView(R.layout.main);
@@ -129,12 +145,14 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         super.onPause();
         log.d("onPause()");
 
-        // save which items were checked and where we are in the list
-        lastChecked = new HashSet<Game>();
-        for (SavedGameAdapter subAdapter : adapter.getSubAdapters()) {
-            lastChecked.addAll(subAdapter.getChecked());
-        }
+        // save where we are in the list
         lastPosition = getListView().getFirstVisiblePosition();
+
+        if (loadGamesTask != null) {
+            loadGamesTask.cancel(false);
+            loadGamesTask = null;
+        }
+        cancelSearch();
     }
 
     @Override
@@ -142,38 +160,211 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         super.onResume();
         log.d("onResume()");
 
-        List<Game> games = getAllGames();
-        Collections.sort(games, Game.byRecentlySaved());
-        log.d("loaded games %s", games);
+        // a search in progress would be filtering the old list
+        cancelSearch();
+        final String query = searchEditText.getText().toString();
+        
+        // load in the background, then only update the rows that changed, so that the list doesn't jump around
+        loadGamesTask = new AsyncTask<Void, Void, SortedMap<TimePeriod, List<Game>>>() {
+            
+            private List<Game> games;
+
+            @Override
+            protected SortedMap<TimePeriod, List<Game>> doInBackground(Void... params) {
+                games = getAllGames();
+                Collections.sort(games, Game.byRecentlySaved());
+                log.d("loaded games %s", games);
 
-        SortedMap<TimePeriod, List<Game>> organizedGames = organizeGamesByTimePeriod(games);
+                // format the rows now, rather than while the user is scrolling
+                rowCache.prepare(games);
 
-        adapter = new SeparatedListAdapter<SavedGameAdapter>(this);
+                return organizeGamesByTimePeriod(filterGames(games, findGameIdsMatching(query)));
+            }
+
+            @Override
+            protected void onPostExecute(SortedMap<TimePeriod, List<Game>> organizedGames) {
+                super.onPostExecute(organizedGames);
+                if (isCancelled()) {
+                    return;
+                }
+                loadGamesTask = null;
+                loadedGames = games;
+                onGamesLoaded(organizedGames);
+
+                // the user may have typed something else while the games were loading
+                String currentQuery = searchEditText.getText().toString();
+                if (!currentQuery.equals(query)) {
+                    search(currentQuery);
+                }
+            }
+        };
+        loadGamesTask.execute((Void) null);
+    }
+
+    @Override
+    public boolean onSearchRequested() {
+        showSearch();
+        return true;
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (searchEditText.getVisibility() == View.VISIBLE) {
+            hideSearch();
+            return;
+        }
+        super.onBackPressed();
+    }
+
+    private void showSearch() {
+        searchEditText.setVisibility(View.VISIBLE);
+        searchEditText.requestFocus();
+        InputMethodManager inputMethodManager = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
+        inputMethodManager.showSoftInput(searchEditText, InputMethodManager.SHOW_IMPLICIT);
+    }
+
+    private void hideSearch() {
+        InputMethodManager inputMethodManager = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
+        inputMethodManager.hideSoftInputFromWindow(searchEditText.getWindowToken(), 0);
+        searchEditText.setText(""); // shows all the games again
+        searchEditText.setVisibility(View.GONE);
+    }
+
+    /**
+     * Filter the loaded games in the background, using the full-text index, so the list keeps up with the user's
+     * typing.  Each new query replaces the one before it.
+     */
+    private void search(final String query) {
+        cancelSearch();
+        if (loadGamesTask != null) {
+            return; // the query is checked again once the games have loaded
+        }
+        
+        final List<Game> games = loadedGames;
+        searchTask = new AsyncTask<Void, Void, SortedMap<TimePeriod, List<Game>>>() {
+
+            @Override
+            protected SortedMap<TimePeriod, List<Game>> doInBackground(Void... params) {
+                Set<Integer> gameIds = findGameIdsMatching(query);
+                if (isCancelled()) {
+                    return null; // the user has already typed something else
+                }
+                return organizeGamesByTimePeriod(filterGames(games, gameIds));
+            }
+
+            @Override
+            protected void onPostExecute(SortedMap<TimePeriod, List<Game>> organizedGames) {
+                super.onPostExecute(organizedGames);
+                if (isCancelled()) {
+                    return;
+                }
+                searchTask = null;
+                onGamesLoaded(organizedGames);
+                fastScrollView.listItemsChanged();
+            }
+        };
+        searchTask.execute((Void) null);
+    }
+
+    private void cancelSearch() {
+        if (searchTask != null) {
+            searchTask.cancel(false);
+            searchTask = null;
+        }
+    }
+
+    /**
+     * @return the ids of the games matching the search query, or null if every game matches
+     */
+    private Set<Integer> findGameIdsMatching(String query) {
+        if (TextUtils.isEmpty(query.trim())) {
+            return null;
+        }
+        GameDBHelper dbHelper = null;
+        try {
+            dbHelper = new GameDBHelper(this);
+            return dbHelper.findGameIdsMatching(query);
+        } finally {
+            if (dbHelper != null) {
+                dbHelper.close();
+            }
+        }
+    }
+
+    private static List<Game> filterGames(List<Game> games, final Set<Integer> gameIds) {
+        if (gameIds == null) {
+            return games;
+        }
+        return CollectionUtil.filter(games, new Predicate<Game>() {
+
+            @Override
+            public boolean apply(Game game) {
+                return gameIds.contains(game.getId());
+            }
+        });
+    }
+
+    private void onGamesLoaded(SortedMap<TimePeriod, List<Game>> organizedGames) {
+
+        boolean firstLoad = adapter.getSectionsMap().isEmpty();
+        boolean changed = false;
+
+        Map<String, TimePeriod> newSections = new HashMap<String, TimePeriod>();
+        for (TimePeriod timePeriod : organizedGames.keySet()) {
+            newSections.put(getString(timePeriod.getTitleResId()), timePeriod);
+        }
+
+        // removed sections
+        for (String section : new ArrayList<String>(adapter.getSectionsMap().keySet())) {
+            if (!newSections.containsKey(section)) {
+                adapter.removeSection(section);
+                changed = true;
+            }
+        }
+
+        // new or changed sections; these are already sorted from newest to oldest
+        int sectionIndex = 0;
         for (Entry<TimePeriod, List<Game>> entry : organizedGames.entrySet()) {
-            TimePeriod timePeriod = entry.getKey();
+            String section = getString(entry.getKey().getTitleResId());
             List<Game> gamesSection = entry.getValue();
-            SavedGameAdapter subAdapter = new SavedGameAdapter(this, gamesSection);
-            if (lastChecked != null) {
-                // reload the checked items from when the user last quit
-                subAdapter.setChecked(lastChecked);
+            SavedGameAdapter subAdapter = adapter.getSectionsMap().get(section);
+            if (subAdapter == null) {
+                subAdapter = new SavedGameAdapter(this, gamesSection, rowCache, selection);
+                subAdapter.setOnCheckChangedRunnable(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        showOrHideButtonRow();
+                    }
+                });
+                adapter.insertSection(section, sectionIndex, subAdapter);
+                changed = true;
+            } else if (subAdapter.updateGames(gamesSection)) {
+                changed = true;
             }
-            subAdapter.setOnCheckChangedRunnable(new Runnable() {
+            sectionIndex++;
+        }
 
-                @Override
-                public void run() {
-                    showOrHideButtonRow();
-                }
-            });
-            adapter.addSection(getString(timePeriod.getTitleResId()), subAdapter);
+        // games that were deleted or filtered out can't stay checked
+        listedGames = new GameSelection();
+        for (List<Game> gamesSection : organizedGames.values()) {
+            for (Game game : gamesSection) {
+                listedGames.setSelected(game, true);
+            }
+        }
+        selection.retainAll(listedGames);
+
+        if (changed) {
+            adapter.notifyDataSetChanged();
+            adapter.refreshSections();
+            showOrHideButtonRow();
         }
-        setListAdapter(adapter);
 
-        if (lastPosition != null) {
+        if (firstLoad && lastPosition != null) {
             // scroll to the user's last position when they quit
             getListView().setSelection(lastPosition);
         }
         lastPosition = null;
-        lastChecked = null;
     }
 
     @Override
@@ -195,10 +386,12 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         MenuItem deleteSelectedMenuItem = menu.findItem(R.id.menu_delete_selected);
         MenuItem shareSelectedMenuItem = menu.findItem(R.id.menu_share_selected);
         
+        MenuItem searchMenuItem = menu.findItem(R.id.menu_search);
         MenuItem loadBackupMenuItem = menu.findItem(R.id.menu_load_backup);
         MenuItem saveBackupMenuItem = menu.findItem(R.id.menu_save_backup);
         MenuItem shareMenuItem = menu.findItem(R.id.menu_share);
         MenuItem exportToSpreadsheetMenuItem = menu.findItem(R.id.menu_export_to_spreadsheet);
+        MenuItem playerStatsMenuItem = menu.findItem(R.id.menu_player_stats);
         MenuItem settingsMenuItem = menu.findItem(R.id.menu_settings);
         MenuItem aboutMenuItem = menu.findItem(R.id.menu_about);
         
@@ -208,8 +401,8 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         //
         
         MenuItem[] selectedModeMenuItems = new MenuItem[]{deleteSelectedMenuItem, shareSelectedMenuItem};
-        MenuItem[] normalModeMenuItems = new MenuItem[]{loadBackupMenuItem, saveBackupMenuItem, shareMenuItem,
-                exportToSpreadsheetMenuItem, settingsMenuItem, aboutMenuItem};
+        MenuItem[] normalModeMenuItems = new MenuItem[]{searchMenuItem, loadBackupMenuItem, saveBackupMenuItem,
+                shareMenuItem, exportToSpreadsheetMenuItem, playerStatsMenuItem, settingsMenuItem, aboutMenuItem};
 
         for (MenuItem menuItem : selectedModeMenuItems) {
             menuItem.setEnabled(selectedMode);
@@ -251,6 +444,13 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     public boolean onOptionsItemSelected(MenuItem item) {
 
         switch (item.getItemId()) {
+        case R.id.menu_search:
+            if (searchEditText.getVisibility() == View.VISIBLE) {
+                hideSearch();
+            } else {
+                showSearch();
+            }
+            break;
         case R.id.menu_settings:
             Intent settingsIntent = new Intent(MainActivity.this, SettingsActivity.class);
             startActivity(settingsIntent);
@@ -277,6 +477,10 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         case R.id.menu_export_to_spreadsheet:
             showExportToSpreadsheetDialog(getAllGameIds());
             break;
+        case R.id.menu_player_stats:
+            Intent playerStatsIntent = new Intent(MainActivity.this, PlayerStatsActivity.class);
+            startActivity(playerStatsIntent);
+            break;
         }
         return false;
     }
@@ -539,6 +743,25 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
         }
 
         spacerView = findViewById(R.id.view_spacer);
+
+        searchEditText = (EditText) findViewById(R.id.edit_search);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                // do nothing
+            }
+
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                // do nothing
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s.toString());
+            }
+        });
     }
 
     private void showSaveBackupDialog() {
@@ -855,13 +1078,7 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     }
 
     private List<Integer> getSelectedGameIds() {
-        final Set<Integer> ids = new HashSet<Integer>();
-        for (SavedGameAdapter subAdapter : adapter.getSectionsMap().values()) {
-            for (Game game : subAdapter.getChecked()) {
-                ids.add(game.getId());
-            }
-        }
-        return new ArrayList<Integer>(ids);
+        return selection.getGameIds();
     }
     
     private List<Integer> getAllGameIds() {
@@ -926,19 +1143,12 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     }
 
     private void selectAll() {
-        for (SavedGameAdapter subAdapter : adapter.getSectionsMap().values()) {
-            for (int i = 0; i < subAdapter.getCount(); i++) {
-                Game game = subAdapter.getItem(i);
-                subAdapter.getChecked().add(game);
-            }
-        }
+        selection.selectAll(listedGames);
         adapter.notifyDataSetChanged();
     }
 
     private void deselectAll() {
-        for (SavedGameAdapter subAdapter : adapter.getSectionsMap().values()) {
-            subAdapter.getChecked().clear();
-        }
+        selection.clear();
 
         adapter.notifyDataSetChanged();
         selectedMode = false;
@@ -947,12 +1157,9 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     }
 
     private void showDeleteSelectedDialog() {
-        final Set<Game> games = new HashSet<Game>();
-        for (SavedGameAdapter subAdapter : adapter.getSectionsMap().values()) {
-            games.addAll(subAdapter.getChecked());
-        }
-        String message = games.size() == 1 ? getString(R.string.text_game_will_be_deleted) : String.format(
-                getString(R.string.text_games_will_be_deleted), games.size());
+        final List<Integer> gameIds = getSelectedGameIds();
+        String message = gameIds.size() == 1 ? getString(R.string.text_game_will_be_deleted) : String.format(
+                getString(R.string.text_games_will_be_deleted), gameIds.size());
 
         new AlertDialog.Builder(this).setCancelable(true).setTitle(R.string.title_confirm_delete).setMessage(message)
                 .setNegativeButton(android.R.string.cancel, null)
@@ -960,12 +1167,12 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
 
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        deleteGames(games);
+                        deleteGames(gameIds);
                     }
                 }).show();
     }
 
-    private void deleteGames(final Set<Game> games) {
+    private void deleteGames(final List<Integer> gameIds) {
 
         // do in background to avoid jankiness
         new AsyncTask<Void, Void, Void>() {
@@ -976,7 +1183,7 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
                 GameDBHelper dbHelper = null;
                 try {
                     dbHelper = new GameDBHelper(MainActivity.this);
-                    dbHelper.deleteGames(games);
+                    dbHelper.deleteGames(gameIds);
 
                 } finally {
                     if (dbHelper != null) {
@@ -989,12 +1196,9 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
             @Override
             protected void onPostExecute(Void result) {
                 super.onPostExecute(result);
-                int toast = games.size() == 1 ? R.string.toast_deleted : R.string.toast_multiple_deleted;
+                int toast = gameIds.size() == 1 ? R.string.toast_deleted : R.string.toast_multiple_deleted;
                 Toast.makeText(MainActivity.this, toast, Toast.LENGTH_SHORT).show();
-                for (Game game : games) {
-                    onGameDeleted(game);
-                }
-                // clear from the selected sets
+                onGamesDeleted(GameSelection.ofIds(gameIds));
             }
 
         }.execute((Void) null);
@@ -1082,12 +1286,24 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     private void onNewGameCreated(Game newGame) {
 
         // if the appropriate section doesn't exist, need to create it
+        List<Game> newLoadedGames = new ArrayList<Game>(loadedGames);
+        newLoadedGames.add(newGame);
+        Collections.sort(newLoadedGames, Game.byRecentlySaved());
+        loadedGames = newLoadedGames;
+
+        if (searchEditText.length() > 0) {
+            // only list the new game if it matches the search
+            search(searchEditText.getText().toString());
+            return;
+        }
+        listedGames.setSelected(newGame, true);
+
         TimePeriod timePeriodForThisGame = getTimePeriod(new Date(), newGame);
         String sectionForThisGame = getString(timePeriodForThisGame.getTitleResId());
 
         if (adapter.getCount() == 0 || !adapter.getSectionsMap().keySet().contains(sectionForThisGame)) {
             SavedGameAdapter subAdapter = new SavedGameAdapter(MainActivity.this, new ArrayList<Game>(
-                    Collections.singleton(newGame)));
+                    Collections.singleton(newGame)), rowCache, selection);
             subAdapter.setOnCheckChangedRunnable(new Runnable() {
 
                 @Override
@@ -1124,13 +1340,7 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     private void showOrHideButtonRow() {
         
         // the row should be shown if any items are selected
-        selectedMode = CollectionUtil.any(adapter.getSectionsMap().values(), new Predicate<SavedGameAdapter>() {
-
-            @Override
-            public boolean apply(SavedGameAdapter obj) {
-                return !obj.getChecked().isEmpty();
-            }
-        });
+        selectedMode = !selection.isEmpty();
 
         if (selectedMode) {
             showButtonRow();
@@ -1222,7 +1432,7 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     private void showHistory(Game game) {
 
         Intent intent = new Intent(this, HistoryActivity.class);
-        intent.putExtra(HistoryActivity.EXTRA_GAME, game);
+        intent.putExtra(HistoryActivity.EXTRA_GAME_ID, game.getId());
 
         startActivity(intent);
 
@@ -1267,6 +1477,11 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
 
                                 game.setName(newName.trim());
                                 adapter.notifyDataSetChanged();
+                                
+                                if (searchEditText.length() > 0) {
+                                    // the new name might not match the search anymore, or vice versa
+                                    search(searchEditText.getText().toString());
+                                }
 
                                 dialog.dismiss();
                             }
@@ -1286,27 +1501,42 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
                         dialog.dismiss();
-                        deleteGames(Collections.singleton(game));
+                        deleteGames(Collections.singletonList(game.getId()));
                     }
                 }).setNegativeButton(android.R.string.cancel, null).show();
     }
 
-    private void onGameDeleted(Game game) {
-        // delete the game from the adapter
+    private void onGamesDeleted(final GameSelection deleted) {
+        loadedGames = CollectionUtil.filter(loadedGames, new Predicate<Game>() {
+
+            @Override
+            public boolean apply(Game game) {
+                return !deleted.isSelected(game);
+            }
+        });
+        listedGames.deselectAll(deleted);
+        selection.deselectAll(deleted);
 
+        // delete the games from the adapter
         for (Entry<String, SavedGameAdapter> entry : new HashMap<String, SavedGameAdapter>(adapter.getSectionsMap())
                 .entrySet()) {
-            SavedGameAdapter subAdapter = (SavedGameAdapter) entry.getValue();
-            if (subAdapter.getCount() == 1 && subAdapter.getItem(0).equals(game)) {
-                // special case where there's only one item left - don't want
-                // the adapter to be left empty
-                // So delete the entire section
+            SavedGameAdapter subAdapter = entry.getValue();
+            List<Game> deletedGames = new ArrayList<Game>();
+            for (int i = 0; i < subAdapter.getCount(); i++) {
+                if (deleted.isSelected(subAdapter.getItem(i))) {
+                    deletedGames.add(subAdapter.getItem(i));
+                }
+            }
+            if (deletedGames.size() == subAdapter.getCount()) {
+                // don't want the adapter to be left empty, so delete the entire section
                 adapter.removeSection(entry.getKey());
             } else {
-                subAdapter.remove(game);
+                subAdapter.setNotifyOnChange(false);
+                for (Game game : deletedGames) {
+                    subAdapter.remove(game);
+                }
+                subAdapter.setNotifyOnChange(true);
             }
-            subAdapter.getChecked().remove(game); // remove from the checked
-            // list
         }
 
         adapter.notifyDataSetChanged();
@@ -1319,16 +1549,9 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     private SortedMap<TimePeriod, List<Game>> organizeGamesByTimePeriod(List<Game> games) {
         SortedMap<TimePeriod, List<Game>> result = new TreeMap<TimePeriod, List<Game>>();
 
-        Iterator<TimePeriod> timePeriodIterator = Arrays.asList(TimePeriod.values()).iterator();
-        TimePeriod timePeriod = timePeriodIterator.next();
-        Date date = new Date();
+        TimePeriod.Boundaries boundaries = TimePeriod.computeBoundaries(new Date());
         for (Game game : games) {
-            // time periods are sorted from newest to oldest, just like the
-            // games. So we can just walk through
-            // them in order
-            while (!timePeriodMatches(date, timePeriod, game)) {
-                timePeriod = timePeriodIterator.next();
-            }
+            TimePeriod timePeriod = boundaries.getTimePeriod(game.getDateSaved());
             List<Game> existing = result.get(timePeriod);
             if (existing == null) {
                 result.put(timePeriod, new ArrayList<Game>(Collections.singleton(game)));
@@ -1340,26 +1563,6 @@ public class MainActivity extends SherlockListActivity implements OnClickListene
     }
 
     private TimePeriod getTimePeriod(Date date, Game game) {
-        for (TimePeriod timePeriod : TimePeriod.values()) {
-            if (timePeriodMatches(date, timePeriod, game)) {
-                return timePeriod;
-            }
-        }
-        return TimePeriod.Older;
-    }
-
-    /**
-     * Return true if the game occurred within this time period.
-     * 
-     * @param date
-     * @param timePeriod
-     * @param currentGame
-     * @return
-     */
-    private boolean timePeriodMatches(Date date, TimePeriod timePeriod, Game currentGame) {
-        Date start = timePeriod.getStartDateFunction().apply(date);
-        Date end = timePeriod.getEndDateFunction().apply(date);
-
-        return currentGame.getDateSaved() < end.getTime() && currentGame.getDateSaved() >= start.getTime();
+        return TimePeriod.computeBoundaries(date).getTimePeriod(game.getDateSaved());
     }
 }
@@ -5,23 +5,24 @@ import java.util.List;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.WindowManager;
 import android.view.inputmethod.EditorInfo;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
+import android.widget.LinearLayout;
 
-import com.nolanlawson.keepscore.helper.PlayerNameHelper;
+import com.nolanlawson.keepscore.data.PlayerNameAdapter;
 
 public class NamePlayersActivity extends Activity implements OnClickListener {
 	
 	public static final String EXTRA_NUM_PLAYERS = "numPlayers";
 	
 	private List<AutoCompleteTextView> playerEditTexts = new ArrayList<AutoCompleteTextView>();
+	private PlayerNameAdapter playerNameAdapter;
 	private Button okButton;
 	
 	private int numPlayers;
@@ -34,7 +35,8 @@ public class NamePlayersActivity extends Activity implements OnClickListener {
 		getWindow().setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_ALWAYS_HIDDEN);
 		numPlayers = getIntent().getIntExtra(EXTRA_NUM_PLAYERS, 0);
         
-		int contentResId = numPlayers < 7 
+		// the 2-column layout only has room for 8, so bigger games get one long column
+		int contentResId = (numPlayers < 7 || numPlayers > 8)
 				? R.layout.name_players_2_to_6 
 				: R.layout.name_players_7_to_8;
 		
@@ -43,10 +45,19 @@ public class NamePlayersActivity extends Activity implements OnClickListener {
         setUpWidgets();
     }
 
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		playerNameAdapter.close();
+	}
+
 	private void setUpWidgets() {
 
 		okButton = (Button) findViewById(android.R.id.button1);
 		
+		// the suggestions are looked up as the user types, so one adapter does for all the fields
+		playerNameAdapter = new PlayerNameAdapter(this);
+		
 		playerEditTexts.add((AutoCompleteTextView) findViewById(R.id.edit_player_1));
 		playerEditTexts.add((AutoCompleteTextView) findViewById(R.id.edit_player_2));
 		playerEditTexts.add((AutoCompleteTextView) findViewById(R.id.edit_player_3));
@@ -56,6 +67,19 @@ public class NamePlayersActivity extends Activity implements OnClickListener {
 		playerEditTexts.add((AutoCompleteTextView) findViewById(R.id.edit_player_7));
 		playerEditTexts.add((AutoCompleteTextView) findViewById(R.id.edit_player_8));
 		
+		if (numPlayers > 8) {
+			// the layout has the first 6 fields; add the rest below them
+			LinearLayout playerNamesLayout = (LinearLayout) findViewById(R.id.layout_player_names);
+			LayoutInflater inflater = getLayoutInflater();
+			playerEditTexts.subList(6, playerEditTexts.size()).clear();
+			for (int i = 6; i < numPlayers; i++) {
+				AutoCompleteTextView playerEditText = (AutoCompleteTextView) inflater.inflate(
+						R.layout.change_player_name, playerNamesLayout, false);
+				playerNamesLayout.addView(playerEditText);
+				playerEditTexts.add(playerEditText);
+			}
+		}
+		
 		for (int i = 0; i < playerEditTexts.size(); i++) {
 			AutoCompleteTextView playerEditText = playerEditTexts.get(i);
 			if (playerEditText == null) {
@@ -70,40 +94,12 @@ public class NamePlayersActivity extends Activity implements OnClickListener {
 			// final edit text does "action done"
 			if (i == numPlayers-1) {
 				playerEditText.setImeOptions(EditorInfo.IME_ACTION_DONE);
+			} else if (numPlayers > 8) {
+				playerEditText.setImeOptions(EditorInfo.IME_ACTION_NEXT);
 			}
+			playerEditText.setAdapter(playerNameAdapter);
 		}
 		okButton.setOnClickListener(this);
-		
-		fetchPlayerNameSuggestions();
-	}
-
-	private void fetchPlayerNameSuggestions() {
-		
-		// fetch the player name suggestions from the database, in the background, to avoid UI slowdown
-		
-		new AsyncTask<Void, Void, List<String>>(){
-
-			@Override
-			protected List<String> doInBackground(Void... arg0) {
-				return PlayerNameHelper.getPlayerNameSuggestions(NamePlayersActivity.this);
-			}
-
-			@Override
-			protected void onPostExecute(List<String> result) {
-				super.onPostExecute(result);
-				
-				for (AutoCompleteTextView playerEditText : playerEditTexts) {
-					if (playerEditText == null) {
-						continue;
-					}
-					ArrayAdapter<String> adapter = new ArrayAdapter<String>(NamePlayersActivity.this, 
-							R.layout.simple_dropdown_small, result);
-					playerEditText.setAdapter(adapter);
-				}
-			}
-			
-		}.execute((Void)null);
-		
 	}
 
 	@Override
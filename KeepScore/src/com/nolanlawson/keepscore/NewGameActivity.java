@@ -4,15 +4,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.InputType;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.Button;
+import android.widget.EditText;
 
 public class NewGameActivity extends Activity implements OnClickListener {
 
 	private List<Button> numPlayersButtons = new ArrayList<Button>();
+	private Button morePlayersButton;
 
 	@Override
     public void onCreate(Bundle savedInstanceState) {
@@ -35,10 +40,17 @@ public class NewGameActivity extends Activity implements OnClickListener {
 		for (Button button : numPlayersButtons) {
 			button.setOnClickListener(this);
 		}
+		
+		morePlayersButton = (Button) findViewById(R.id.button_more_players);
+		morePlayersButton.setOnClickListener(this);
 	}
 
 	@Override
 	public void onClick(View v) {
+		if (v.getId() == R.id.button_more_players) {
+			showMorePlayersDialog();
+			return;
+		}
 		for (int i = 0; i < numPlayersButtons.size(); i++) {
 			if (numPlayersButtons.get(i).getId() == v.getId()) {
 				// 0th button corresponds to 2 players, 1st to 3, etc.
@@ -48,6 +60,42 @@ public class NewGameActivity extends Activity implements OnClickListener {
 		}
 	}
 
+	private void showMorePlayersDialog() {
+		
+		final int minPlayers = 2;
+		final int maxPlayers = OrganizePlayersActivity.MAX_NUM_PLAYERS;
+		
+		final EditText editText = new EditText(this);
+		editText.setInputType(InputType.TYPE_CLASS_NUMBER);
+		editText.setSingleLine();
+		editText.setHint(getString(R.string.text_num_players_range, minPlayers, maxPlayers));
+		
+		new AlertDialog.Builder(this)
+			.setCancelable(true)
+			.setTitle(R.string.text_num_players)
+			.setView(editText)
+			.setNegativeButton(android.R.string.cancel, null)
+			.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+				
+				@Override
+				public void onClick(DialogInterface dialog, int which) {
+					String text = editText.getText().toString().trim();
+					if (text.length() == 0) {
+						return;
+					}
+					int numPlayers;
+					try {
+						numPlayers = Integer.parseInt(text);
+					} catch (NumberFormatException e) {
+						// too many digits to be an int
+						numPlayers = maxPlayers;
+					}
+					startNamePlayersActivity(Math.max(minPlayers, Math.min(maxPlayers, numPlayers)));
+				}
+			})
+			.show();
+	}
+
 	private void startNamePlayersActivity(int numPlayers) {
 		Intent intent = new Intent(this, NamePlayersActivity.class);
 		intent.putExtra(NamePlayersActivity.EXTRA_NUM_PLAYERS, numPlayers);
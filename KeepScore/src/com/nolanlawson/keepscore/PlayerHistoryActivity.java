@@ -0,0 +1,119 @@
+package com.nolanlawson.keepscore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.view.View;
+
+import com.actionbarsherlock.app.SherlockActivity;
+import com.actionbarsherlock.view.MenuItem;
+import com.nolanlawson.keepscore.db.GameDBHelper;
+import com.nolanlawson.keepscore.db.PlayerGameStats;
+import com.nolanlawson.keepscore.widget.chart.LineChartLine;
+import com.nolanlawson.keepscore.widget.chart.LineChartView;
+
+/**
+ * Activity for charting one player's final score and number of rounds in each saved game they played, oldest game
+ * first.  Only the per-game statistics are loaded, not the games themselves.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerHistoryActivity extends SherlockActivity {
+
+    public static final String EXTRA_PLAYER_NAME = "playerName";
+
+    private LineChartView lineChartView;
+    private AsyncTask<Void, Void, List<PlayerGameStats>> loadTask;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.player_history);
+
+        String playerName = getIntent().getStringExtra(EXTRA_PLAYER_NAME);
+        setTitle(playerName);
+
+        // home button goes back
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        getSupportActionBar().setHomeButtonEnabled(true);
+
+        lineChartView = (LineChartView) findViewById(R.id.player_history_chart_view);
+
+        loadPlayerHistory(playerName);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (loadTask != null) {
+            loadTask.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        // go back on pressing home in the action bar
+        switch (item.getItemId()) {
+            case android.R.id.home:
+                finish();
+                return true;
+        }
+        return false;
+    }
+
+    private void loadPlayerHistory(final String playerName) {
+        loadTask = new AsyncTask<Void, Void, List<PlayerGameStats>>() {
+
+            @Override
+            protected List<PlayerGameStats> doInBackground(Void... params) {
+                GameDBHelper dbHelper = null;
+                try {
+                    dbHelper = new GameDBHelper(PlayerHistoryActivity.this);
+                    return dbHelper.findPlayerGameHistory(playerName);
+                } finally {
+                    if (dbHelper != null) {
+                        dbHelper.close();
+                    }
+                }
+            }
+
+            @Override
+            protected void onPostExecute(List<PlayerGameStats> result) {
+                super.onPostExecute(result);
+                loadTask = null;
+                if (result.isEmpty()) {
+                    finish(); // e.g. the games were deleted in the meantime
+                    return;
+                }
+                findViewById(R.id.progress_player_history).setVisibility(View.GONE);
+                lineChartView.loadData(createChartLines(result));
+                lineChartView.requestLayout();
+            }
+        };
+        loadTask.execute((Void) null);
+    }
+
+    private List<LineChartLine> createChartLines(List<PlayerGameStats> history) {
+        List<Integer> scores = new ArrayList<Integer>(history.size());
+        List<Integer> rounds = new ArrayList<Integer>(history.size());
+        for (PlayerGameStats stats : history) {
+            scores.add((int) stats.getScore());
+            rounds.add(stats.getRounds());
+        }
+
+        LineChartLine scoresLine = new LineChartLine();
+        scoresLine.setLabel(getString(R.string.text_final_score));
+        scoresLine.setDataPoints(scores);
+
+        LineChartLine roundsLine = new LineChartLine();
+        roundsLine.setLabel(getString(R.string.text_rounds));
+        roundsLine.setDataPoints(rounds);
+
+        return Arrays.asList(scoresLine, roundsLine);
+    }
+}
@@ -0,0 +1,97 @@
+package com.nolanlawson.keepscore;
+
+import java.util.List;
+
+import android.content.Intent;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ListView;
+
+import com.actionbarsherlock.app.SherlockListActivity;
+import com.actionbarsherlock.view.MenuItem;
+import com.nolanlawson.keepscore.data.PlayerStatsAdapter;
+import com.nolanlawson.keepscore.db.GameDBHelper;
+import com.nolanlawson.keepscore.db.PlayerStats;
+
+/**
+ * Activity for showing each named player's totals and rating across all saved games.  The totals are kept up to date
+ * as games are saved, so this only has to read them; the ratings are replayed from the earliest changed game, if any.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerStatsActivity extends SherlockListActivity {
+
+    private AsyncTask<Void, Void, List<PlayerStats>> loadTask;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.player_stats);
+
+        // home button goes back
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        getSupportActionBar().setHomeButtonEnabled(true);
+
+        loadPlayerStats();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (loadTask != null) {
+            loadTask.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        // go back on pressing home in the action bar
+        switch (item.getItemId()) {
+            case android.R.id.home:
+                finish();
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void onListItemClick(ListView l, View v, int position, long id) {
+        super.onListItemClick(l, v, position, id);
+
+        PlayerStats stats = (PlayerStats) l.getItemAtPosition(position);
+        Intent intent = new Intent(this, PlayerHistoryActivity.class);
+        intent.putExtra(PlayerHistoryActivity.EXTRA_PLAYER_NAME, stats.getName());
+        startActivity(intent);
+    }
+
+    private void loadPlayerStats() {
+        loadTask = new AsyncTask<Void, Void, List<PlayerStats>>() {
+
+            @Override
+            protected List<PlayerStats> doInBackground(Void... params) {
+                GameDBHelper dbHelper = null;
+                try {
+                    dbHelper = new GameDBHelper(PlayerStatsActivity.this);
+                    return dbHelper.findAllPlayerStats();
+                } finally {
+                    if (dbHelper != null) {
+                        dbHelper.close();
+                    }
+                }
+            }
+
+            @Override
+            protected void onPostExecute(List<PlayerStats> result) {
+                super.onPostExecute(result);
+                loadTask = null;
+                findViewById(R.id.progress_player_stats).setVisibility(View.GONE);
+                getListView().setEmptyView(findViewById(R.id.text_no_player_stats));
+                setListAdapter(new PlayerStatsAdapter(PlayerStatsActivity.this, result));
+            }
+        };
+        loadTask.execute((Void) null);
+    }
+}
@@ -34,8 +34,11 @@ import com.actionbarsherlock.view.MenuItem;
 import com.nolanlawson.keepscore.data.SimpleTwoLineAdapter;
 import com.nolanlawson.keepscore.data.TextWithDeleteAdapter;
 import com.nolanlawson.keepscore.data.TextWithDeleteAdapter.OnDeleteListener;
+import com.nolanlawson.keepscore.helper.LatencyTracker;
 import com.nolanlawson.keepscore.helper.PackageHelper;
 import com.nolanlawson.keepscore.helper.PreferenceHelper;
+import com.nolanlawson.keepscore.helper.SdcardHelper;
+import com.nolanlawson.keepscore.helper.SdcardHelper.Location;
 import com.nolanlawson.keepscore.helper.SettingSetHelper;
 import com.nolanlawson.keepscore.helper.ToastHelper;
 import com.nolanlawson.keepscore.util.IntegerUtil;
@@ -50,7 +53,7 @@ public class SettingsActivity extends SherlockPreferenceActivity implements OnPr
     private EditTextPreference button1Pref, button2Pref, button3Pref, button4Pref, twoPlayerButton1Pref,
             twoPlayerButton2Pref, twoPlayerButton3Pref, twoPlayerButton4Pref, updateDelayPref, initialScorePref;
     private CheckBoxPreference greenTextPref, showRoundTotalsPref, showInitialMessagePref, disableHighlightTagPref;
-    private Preference resetPref, aboutPref, saveSettingsPref, loadSettingsPref;
+    private Preference resetPref, aboutPref, saveSettingsPref, loadSettingsPref, latencyStatsPref;
     private ListPreference colorSchemePref;
 
     private Handler handler = new Handler(Looper.getMainLooper());
@@ -120,6 +123,7 @@ public class SettingsActivity extends SherlockPreferenceActivity implements OnPr
         colorSchemePref = (ListPreference) findPreferenceById(R.string.CONSTANT_pref_color_scheme);
         loadSettingsPref = findPreferenceById(R.string.CONSTANT_pref_load_settings);
         saveSettingsPref = findPreferenceById(R.string.CONSTANT_pref_save_settings);
+        latencyStatsPref = findPreferenceById(R.string.CONSTANT_pref_latency_stats);
 
         // update the preference's summary with whatever the value is, as it's
         // changed
@@ -167,6 +171,7 @@ public class SettingsActivity extends SherlockPreferenceActivity implements OnPr
         resetPref.setOnPreferenceClickListener(this);
         loadSettingsPref.setOnPreferenceClickListener(this);
         saveSettingsPref.setOnPreferenceClickListener(this);
+        latencyStatsPref.setOnPreferenceClickListener(this);
 
         setDynamicColorSchemeSummary(colorSchemePref);
 
@@ -430,11 +435,52 @@ public class SettingsActivity extends SherlockPreferenceActivity implements OnPr
             saveSettings();
         } else if (pref.getKey().equals(getString(R.string.CONSTANT_pref_load_settings))) {
             loadSettings();
+        } else if (pref.getKey().equals(getString(R.string.CONSTANT_pref_latency_stats))) {
+            showLatencyStats();
         }
 
         return true;
     }
 
+    private void showLatencyStats() {
+        
+        final String report = LatencyTracker.createReport(this);
+        
+        new AlertDialog.Builder(this).setCancelable(true).setTitle(R.string.pref_latency_stats_name)
+                .setMessage(report)
+                .setNegativeButton(android.R.string.cancel, null)
+                .setNeutralButton(R.string.button_reset, new DialogInterface.OnClickListener() {
+
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.dismiss();
+                        LatencyTracker.clear();
+                    }
+                })
+                .setPositiveButton(R.string.button_export, new DialogInterface.OnClickListener() {
+
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.dismiss();
+                        exportLatencyStats(report);
+                    }
+                }).show();
+    }
+    
+    private void exportLatencyStats(String report) {
+        if (!SdcardHelper.isAvailable()) {
+            ToastHelper.showLong(this, R.string.toast_no_sdcard);
+            return;
+        }
+        String filename = SdcardHelper.createLatencyReportFilename();
+        if (SdcardHelper.saveText(filename, Location.Diagnostics, report)) {
+            ToastHelper.showLong(this, R.string.toast_saved_latency_stats, 
+                    SdcardHelper.getFile(filename, Location.Diagnostics).getAbsolutePath());
+        } else {
+            ToastHelper.showLong(this, R.string.toast_save_backup_failed);
+        }
+    }
+
     private void resetPrefs() {
         new AlertDialog.Builder(SettingsActivity.this).setTitle(R.string.title_confirm)
                 .setMessage(R.string.text_reset_confirm).setCancelable(true)
@@ -0,0 +1,125 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.List;
+
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * The full history of a game, laid out round by round.  Round 0 is each player's starting score, and round n is
+ * their nth delta, e.g.:
+ *
+ * <pre>
+ *     round 0: p1=0,        p2=0
+ *     round 1: p1=+5 (5),   p2=+3 (3)
+ *     round 2: p1=-2 (3)
+ * </pre>
+ *
+ * Players who have played fewer rounds simply have no entry for the later ones.
+ *
+ * Only the deltas are kept, as primitives.  Running totals are worked out on demand from a checkpoint taken every
+ * few rounds, so looking up any (round, player) is cheap and doesn't require a running total (or an object) for
+ * every round.
+ *
+ * @author nolan
+ *
+ */
+public class CollatedHistory {
+
+    private static final int CHECKPOINT_INTERVAL = 32;
+
+    private final int[][] deltas;
+    // running total of each player at rounds 0, CHECKPOINT_INTERVAL, 2 * CHECKPOINT_INTERVAL, etc.
+    private final long[][] checkpoints;
+    private final int numRounds;
+
+    public CollatedHistory(List<PlayerScore> playerScores) {
+        int numPlayers = playerScores.size();
+        deltas = new int[numPlayers][];
+        checkpoints = new long[numPlayers][];
+
+        int maxRounds = 0;
+        for (int player = 0; player < numPlayers; player++) {
+            PlayerScore playerScore = playerScores.get(player);
+            List<Integer> history = playerScore.getHistory();
+
+            int[] playerDeltas = new int[history.size()];
+            long[] playerCheckpoints = new long[history.size() / CHECKPOINT_INTERVAL + 1];
+
+            // figure out what the starting score was by just subtracting everything
+            long runningTotal = playerScore.getScore();
+            for (int i = 0; i < playerDeltas.length; i++) {
+                playerDeltas[i] = history.get(i);
+                runningTotal -= playerDeltas[i];
+            }
+            playerCheckpoints[0] = runningTotal;
+
+            for (int i = 0; i < playerDeltas.length; i++) {
+                runningTotal += playerDeltas[i];
+                if ((i + 1) % CHECKPOINT_INTERVAL == 0) {
+                    playerCheckpoints[(i + 1) / CHECKPOINT_INTERVAL] = runningTotal;
+                }
+            }
+
+            deltas[player] = playerDeltas;
+            checkpoints[player] = playerCheckpoints;
+            maxRounds = Math.max(maxRounds, getNumRounds(player));
+        }
+        numRounds = maxRounds;
+    }
+
+    public int getNumPlayers() {
+        return deltas.length;
+    }
+
+    /**
+     * @return the number of rounds in the longest history, including the starting score
+     */
+    public int getNumRounds() {
+        return numRounds;
+    }
+
+    /**
+     * @return the number of rounds the player has played, including the starting score
+     */
+    public int getNumRounds(int player) {
+        return deltas[player].length + 1;
+    }
+
+    public boolean hasEntry(int round, int player) {
+        return round < getNumRounds(player);
+    }
+
+    /**
+     * @return true if this round is just the starting score, i.e. there's no delta to show
+     */
+    public boolean isStartingScore(int round) {
+        return round == 0;
+    }
+
+    public int getDelta(int round, int player) {
+        return round == 0 ? 0 : deltas[player][round - 1];
+    }
+
+    public long getRunningTotal(int round, int player) {
+        int checkpoint = round / CHECKPOINT_INTERVAL;
+        long result = checkpoints[player][checkpoint];
+        int[] playerDeltas = deltas[player];
+        for (int i = checkpoint * CHECKPOINT_INTERVAL; i < round; i++) {
+            result += playerDeltas[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return the sum of the deltas of every player who has an entry for this round
+     */
+    public long getRoundSum(int round) {
+        long result = 0;
+        for (int player = 0; player < deltas.length; player++) {
+            if (hasEntry(round, player)) {
+                result += getDelta(round, player);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,271 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * Log of all the RecordedChanges made to a Game, which is the source of truth for its PlayerScores.  Every change
+ * is applied through the log, and undo/redo just move the cursor back and forth over it.
+ *
+ * <p/>Each change gets a sequence number, starting from 1.  The Game's eventSequence is the sequence number of the
+ * last applied change, so a Game can always be rebuilt from a snapshot plus the changes recorded after it.
+ *
+ * <p/>Only the most recent changes (up to the capacity) are kept in memory.
+ *
+ * @author nolan
+ *
+ */
+public class GameEventLog {
+
+    private final Game game;
+    private final int capacity;
+    private final List<RecordedChange> changes;
+
+    // sequence number of changes.get(0)
+    private int firstSequence;
+    // all changes up to this sequence number are stored in the database
+    private int persistedSequence;
+    // true if the last snapshot written to the database was on a branch that has since been discarded
+    private boolean snapshotRequired;
+    // lowest sequence number the log has been cut back to since the last call to prepareSave()
+    private int branchSequence = Integer.MAX_VALUE;
+
+    /**
+     * Create an empty log for a game, starting from the game's current state.
+     */
+    public GameEventLog(Game game, int capacity) {
+        this(game, capacity, game.getEventSequence() + 1, Collections.<RecordedChange>emptyList());
+    }
+
+    /**
+     * Create a log for a game from changes that have already been persisted.
+     *
+     * @param firstSequence the sequence number of the first change in the list
+     */
+    public GameEventLog(Game game, int capacity, int firstSequence, List<RecordedChange> persistedChanges) {
+        this.game = game;
+        this.capacity = capacity;
+        this.changes = new ArrayList<RecordedChange>(persistedChanges);
+        this.firstSequence = firstSequence;
+        this.persistedSequence = getLastSequence();
+    }
+
+    /**
+     * Apply the change to the game and append it to the log, discarding anything that could have been redone.
+     */
+    public synchronized void record(RecordedChange change) {
+
+        int cursor = game.getEventSequence();
+
+        if (cursor < getLastSequence()) {
+            // the undone changes can never be redone now
+            changes.subList(cursor - firstSequence + 1, changes.size()).clear();
+            if (cursor < persistedSequence) {
+                persistedSequence = cursor;
+            }
+            branchSequence = Math.min(branchSequence, cursor);
+        }
+        if (cursor < game.getSnapshotSequence()) {
+            // the snapshot in the database includes changes from the discarded branch
+            snapshotRequired = true;
+        }
+
+        change.applyTo(getPlayerScore(change));
+        changes.add(change);
+        game.setEventSequence(cursor + 1);
+
+        while (changes.size() > capacity) {
+            changes.remove(0);
+            firstSequence++;
+        }
+    }
+
+    public synchronized boolean canUndo() {
+        return game.getEventSequence() >= firstSequence;
+    }
+
+    public synchronized boolean canRedo() {
+        return game.getEventSequence() < getLastSequence();
+    }
+
+    /**
+     * @return the change that would be reverted by the next undo, or null if there is none
+     */
+    public synchronized RecordedChange peekUndo() {
+        return canUndo() ? changes.get(game.getEventSequence() - firstSequence) : null;
+    }
+
+    /**
+     * @return the change that would be applied by the next redo, or null if there is none
+     */
+    public synchronized RecordedChange peekRedo() {
+        return canRedo() ? changes.get(game.getEventSequence() - firstSequence + 1) : null;
+    }
+
+    /**
+     * Revert the last applied change and move the cursor back.
+     *
+     * @return the reverted change
+     */
+    public synchronized RecordedChange undo() {
+        RecordedChange change = peekUndo();
+        change.revertFrom(getPlayerScore(change));
+        game.setEventSequence(game.getEventSequence() - 1);
+        return change;
+    }
+
+    /**
+     * Re-apply the next undone change and move the cursor forward.
+     *
+     * @return the re-applied change
+     */
+    public synchronized RecordedChange redo() {
+        RecordedChange change = peekRedo();
+        change.applyTo(getPlayerScore(change));
+        game.setEventSequence(game.getEventSequence() + 1);
+        return change;
+    }
+
+    /**
+     * @return the sequence number of the first change returned by {@link #getUnpersistedChanges()}
+     */
+    public synchronized int getFirstUnpersistedSequence() {
+        return Math.max(persistedSequence + 1, firstSequence);
+    }
+
+    /**
+     * @return all changes, including those that could be redone, that haven't been stored in the database yet
+     */
+    public synchronized List<RecordedChange> getUnpersistedChanges() {
+        int fromIndex = getFirstUnpersistedSequence() - firstSequence;
+        return new ArrayList<RecordedChange>(changes.subList(fromIndex, changes.size()));
+    }
+
+    /**
+     * @return true if the game must be written out in full, rather than just appending the unpersisted changes
+     */
+    public synchronized boolean isSnapshotRequired() {
+        // also true if unpersisted changes have already dropped off the front of the log
+        return snapshotRequired || persistedSequence + 1 < firstSequence;
+    }
+
+    /**
+     * Mark all changes in the log as stored in the database.
+     */
+    public synchronized void markPersisted() {
+        persistedSequence = getLastSequence();
+        snapshotRequired = false;
+    }
+
+    /**
+     * Copy everything a save needs out of the log, so that the save itself can run without holding the log's lock,
+     * and the game can keep being changed in the meantime.  Pass the result to {@link #markPersisted(PendingSave)}
+     * once it's been saved.
+     */
+    public synchronized PendingSave prepareSave() {
+        branchSequence = Integer.MAX_VALUE;
+        return new PendingSave((Game) game.clone(), getFirstUnpersistedSequence(), getUnpersistedChanges(),
+                isSnapshotRequired(), getLastSequence());
+    }
+
+    /**
+     * Mark the changes copied by {@link #prepareSave()} as stored in the database, apart from any that have since
+     * been undone and overwritten, and take over the ids and dates the save gave to the copy of the game.
+     */
+    public synchronized void markPersisted(PendingSave pendingSave) {
+        Game savedGame = pendingSave.getGame();
+        game.setId(savedGame.getId());
+        game.setDateSaved(savedGame.getDateSaved());
+        List<PlayerScore> playerScores = game.getPlayerScores();
+        List<PlayerScore> savedPlayerScores = savedGame.getPlayerScores();
+        for (int i = 0; i < Math.min(playerScores.size(), savedPlayerScores.size()); i++) {
+            if (playerScores.get(i).getId() == -1) {
+                playerScores.get(i).setId(savedPlayerScores.get(i).getId());
+            }
+        }
+
+        // changes after the branch point (if any) are no longer the ones that were saved
+        persistedSequence = Math.max(persistedSequence, Math.min(pendingSave.getLastSequence(), branchSequence));
+
+        if (pendingSave.isSnapshotWritten()) {
+            game.setSnapshotSequence(savedGame.getSnapshotSequence());
+            snapshotRequired = branchSequence < savedGame.getSnapshotSequence();
+        }
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * @return how many of the most recent changes are kept, i.e. how far back the changes can be undone
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int getLastSequence() {
+        return firstSequence + changes.size() - 1;
+    }
+
+    private PlayerScore getPlayerScore(RecordedChange change) {
+        return game.getPlayerScores().get(change.getPlayerNumber());
+    }
+
+    /**
+     * A copy of a game and its unsaved changes, as of when the save was prepared.
+     */
+    public static class PendingSave {
+
+        private final Game game;
+        private final int firstUnpersistedSequence;
+        private final List<RecordedChange> unpersistedChanges;
+        private final boolean snapshotRequired;
+        private final int lastSequence;
+        private boolean snapshotWritten;
+
+        private PendingSave(Game game, int firstUnpersistedSequence, List<RecordedChange> unpersistedChanges,
+                boolean snapshotRequired, int lastSequence) {
+            this.game = game;
+            this.firstUnpersistedSequence = firstUnpersistedSequence;
+            this.unpersistedChanges = unpersistedChanges;
+            this.snapshotRequired = snapshotRequired;
+            this.lastSequence = lastSequence;
+        }
+
+        /**
+         * @return a copy of the game, which the save is free to modify
+         */
+        public Game getGame() {
+            return game;
+        }
+
+        public int getFirstUnpersistedSequence() {
+            return firstUnpersistedSequence;
+        }
+
+        public List<RecordedChange> getUnpersistedChanges() {
+            return unpersistedChanges;
+        }
+
+        public boolean isSnapshotRequired() {
+            return snapshotRequired;
+        }
+
+        public int getLastSequence() {
+            return lastSequence;
+        }
+
+        public boolean isSnapshotWritten() {
+            return snapshotWritten;
+        }
+
+        public void setSnapshotWritten(boolean snapshotWritten) {
+            this.snapshotWritten = snapshotWritten;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import com.nolanlawson.keepscore.db.Game;
+
+/**
+ * The set of saved games that the user has checked, shared by every section of the saved games list.  Game ids are
+ * small, dense integers, so they're stored as bits rather than as Game objects, which makes selecting, clearing and
+ * intersecting the whole list cheap no matter how many games there are.
+ *
+ * @author nolan
+ *
+ */
+public class GameSelection {
+
+    private final BitSet gameIds = new BitSet();
+
+    public boolean isSelected(Game game) {
+        return game.getId() >= 0 && gameIds.get(game.getId());
+    }
+
+    public void setSelected(Game game, boolean selected) {
+        if (game.getId() < 0) {
+            return; // unsaved games can't be selected
+        }
+        gameIds.set(game.getId(), selected);
+    }
+
+    public void selectAll(GameSelection other) {
+        gameIds.or(other.gameIds);
+    }
+
+    /**
+     * Deselect every game that isn't also selected in the other selection, e.g. because it's no longer in the list.
+     */
+    public void retainAll(GameSelection other) {
+        gameIds.and(other.gameIds);
+    }
+
+    public void deselectAll(GameSelection other) {
+        gameIds.andNot(other.gameIds);
+    }
+
+    public void clear() {
+        gameIds.clear();
+    }
+
+    public boolean isEmpty() {
+        return gameIds.isEmpty();
+    }
+
+    public int size() {
+        return gameIds.cardinality();
+    }
+
+    /**
+     * @return the selected game ids, in ascending order
+     */
+    public List<Integer> getGameIds() {
+        List<Integer> result = new ArrayList<Integer>(size());
+        for (int id = gameIds.nextSetBit(0); id >= 0; id = gameIds.nextSetBit(id + 1)) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public static GameSelection ofIds(Collection<Integer> gameIds) {
+        GameSelection result = new GameSelection();
+        for (Integer gameId : gameIds) {
+            result.gameIds.set(gameId);
+        }
+        return result;
+    }
+}
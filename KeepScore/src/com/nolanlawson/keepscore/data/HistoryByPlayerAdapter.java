@@ -0,0 +1,105 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.nolanlawson.keepscore.R;
+
+/**
+ * The 'by player' history table, which is a simple 2-column table with a vertical divider.  Players are shown two
+ * at a time: a header row with their names, followed by their history items side by side.
+ *
+ * @author nolan
+ *
+ */
+public class HistoryByPlayerAdapter extends HistoryTableAdapter {
+
+    private List<String> playerNames;
+    private CollatedHistory history;
+
+    // position of the header row for each pair of players
+    private int[] pairStarts;
+    private int count;
+
+    /**
+     * @param historyModel
+     *            a model whose tables are ready
+     */
+    public HistoryByPlayerAdapter(Context context, HistoryModel historyModel) {
+        super(context);
+        this.playerNames = historyModel.getPlayerNames();
+        this.history = historyModel.getCollatedHistory();
+
+        int numPairs = (playerNames.size() + 1) / 2;
+        pairStarts = new int[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            pairStarts[i] = count;
+            count += 1 + Math.max(getNumRounds(i * 2), getNumRounds(i * 2 + 1));
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return Arrays.binarySearch(pairStarts, position) >= 0 ? VIEW_TYPE_HEADER : VIEW_TYPE_ROW;
+    }
+
+    @Override
+    public View getView(int position, View view, ViewGroup parent) {
+
+        int pair = Arrays.binarySearch(pairStarts, position);
+        boolean header = pair >= 0;
+        if (!header) {
+            // not a header, so take the closest header before it
+            pair = -pair - 2;
+        }
+
+        int leftPlayer = pair * 2;
+        int rightPlayer = leftPlayer + 1;
+
+        if (view == null) {
+            view = createPairRow(header);
+        }
+        View[] cells = (View[]) view.getTag();
+
+        if (header) {
+            ((TextView) cells[0]).setText(playerNames.get(leftPlayer));
+            ((TextView) cells[1]).setText(rightPlayer < playerNames.size() ? playerNames.get(rightPlayer) : " ");
+            return view;
+        }
+
+        int round = position - pairStarts[pair] - 1;
+        int rowId = position - (pair + 1); // i.e. not counting the headers
+        bindHistoryItemView(cells[0], history, round, leftPlayer, rowId);
+        bindHistoryItemView(cells[1], history, round, rightPlayer, rowId);
+
+        return view;
+    }
+
+    private View createPairRow(boolean header) {
+        LinearLayout row = createRow();
+        View[] cells = new View[2];
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                addDividerView(row);
+            }
+            cells[i] = header ? addColumnHeader(row, true, false) : addCell(row, R.layout.history_item_wide);
+        }
+        row.setTag(cells);
+        return row;
+    }
+
+    private int getNumRounds(int player) {
+        return player < history.getNumPlayers() ? history.getNumRounds(player) : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.List;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.nolanlawson.keepscore.R;
+
+/**
+ * The 'by round' history table.  The first row has each player's name, and then after that it just goes
+ * round-by-round, showing the diff and the running total for each player, plus the sum of the round, e.g.:
+ *
+ * <pre>
+ *     p1, p2, p3, p4
+ *     0,  0,  0,  0
+ *     +5, +3, -2, +10
+ *     5,  3,  -2, 10
+ * </pre>
+ *
+ * The first round is just the starting score.
+ *
+ * @author nolan
+ *
+ */
+public class HistoryByRoundAdapter extends HistoryTableAdapter {
+
+    private static final int MAX_COLUMNS_FOR_WIDE_LIST_LAYOUT = 4;
+    private static final int MAX_COLUMNS_FOR_REGULAR_TALL_LIST_LAYOUT = 6;
+
+    private List<String> playerNames;
+    private CollatedHistory history;
+    private int numRounds;
+    private int historyItemLayoutId;
+
+    // all the row headers have to be the same width, so the columns line up
+    private int rowHeaderWidth = -1;
+
+    /**
+     * @param historyModel
+     *            a model whose tables are ready
+     */
+    public HistoryByRoundAdapter(Context context, HistoryModel historyModel) {
+        super(context);
+        this.playerNames = historyModel.getPlayerNames();
+        this.history = historyModel.getCollatedHistory();
+        this.numRounds = history.getNumRounds();
+
+        int numPlayers = playerNames.size();
+        historyItemLayoutId = numPlayers <= MAX_COLUMNS_FOR_WIDE_LIST_LAYOUT ? R.layout.history_item_wide
+                : numPlayers <= MAX_COLUMNS_FOR_REGULAR_TALL_LIST_LAYOUT ? R.layout.history_item_tall
+                        : R.layout.history_item_extra_tall;
+    }
+
+    @Override
+    public int getCount() {
+        return 1 + numRounds; // header row, then the rounds
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return position == 0 ? VIEW_TYPE_HEADER : VIEW_TYPE_ROW;
+    }
+
+    @Override
+    public View getView(int position, View view, ViewGroup parent) {
+        if (position == 0) {
+            return view != null ? view : createHeaderRow(parent);
+        }
+
+        if (view == null) {
+            view = createRoundRow(parent);
+        }
+        RowViews rowViews = (RowViews) view.getTag();
+
+        int round = position - 1;
+
+        // first row is just the starting score
+        rowViews.rowHeader.setText(round == 0 ? "" : Integer.toString(round));
+
+        // add in all the history items from this round
+        for (int i = 0; i < rowViews.cells.length; i++) {
+            bindHistoryItemView(rowViews.cells[i], history, round, i, round);
+        }
+
+        // add in the round total (sum)
+        long sum = history.getRoundSum(round);
+        if (history.isStartingScore(round)) {
+            bindHistoryItemView(rowViews.sumCell, 0, sum, true, round);
+        } else {
+            bindSumView(rowViews.sumCell, round, sum);
+        }
+
+        return view;
+    }
+
+    private View createHeaderRow(ViewGroup parent) {
+        LinearLayout row = createRow();
+
+        TextView cornerView = addColumnHeader(row, false, false);
+        cornerView.setText(" ");
+        cornerView.getLayoutParams().width = getRowHeaderWidth(parent);
+
+        // add in all the section headers first, so they can be laid out across
+        // as the first row
+        for (String playerName : playerNames) {
+            addDividerView(row);
+            addColumnHeader(row, true, false).setText(playerName);
+        }
+
+        // add a column to the right with an epsilon sign (for the round total
+        // sum)
+        addDividerView(row);
+        addColumnHeader(row, true, true).setText(getContext().getString(R.string.CONSTANT_text_epsilon));
+
+        return row;
+    }
+
+    private View createRoundRow(ViewGroup parent) {
+        LinearLayout row = createRow();
+        RowViews rowViews = new RowViews();
+
+        View rowHeaderView = inflater.inflate(R.layout.history_row_header, row, false);
+        rowHeaderView.setLayoutParams(new LinearLayout.LayoutParams(getRowHeaderWidth(parent),
+                LinearLayout.LayoutParams.FILL_PARENT));
+        row.addView(rowHeaderView);
+        rowViews.rowHeader = (TextView) rowHeaderView.findViewById(android.R.id.text1);
+
+        rowViews.cells = new View[playerNames.size()];
+        for (int i = 0; i < rowViews.cells.length; i++) {
+            addDividerView(row);
+            rowViews.cells[i] = addCell(row, historyItemLayoutId);
+        }
+
+        addDividerView(row);
+        rowViews.sumCell = addCell(row, historyItemLayoutId);
+
+        row.setTag(rowViews);
+        return row;
+    }
+
+    private int getRowHeaderWidth(ViewGroup parent) {
+        if (rowHeaderWidth == -1) {
+            // as wide as the widest round number
+            View rowHeaderView = inflater.inflate(R.layout.history_row_header, parent, false);
+            ((TextView) rowHeaderView.findViewById(android.R.id.text1)).setText(Integer.toString(numRounds - 1));
+            int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            rowHeaderView.measure(unspecified, unspecified);
+            rowHeaderWidth = rowHeaderView.getMeasuredWidth();
+        }
+        return rowHeaderWidth;
+    }
+
+    private static class RowViews {
+        private TextView rowHeader;
+        private View[] cells;
+        private View sumCell;
+    }
+}
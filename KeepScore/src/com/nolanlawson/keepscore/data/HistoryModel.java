@@ -0,0 +1,92 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.content.Context;
+
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerScore;
+import com.nolanlawson.keepscore.util.CollectionUtil;
+import com.nolanlawson.keepscore.widget.chart.LineChartLine;
+
+/**
+ * Everything the history screen shows, computed from the game off the UI thread.  It's prepared in parts, so that
+ * each tab can be shown as soon as its own part is ready:  first the chart (since it's the first tab), then the
+ * collated history used by the tables.
+ *
+ * Each part should be prepared on a single background thread, and only read once it's ready.
+ *
+ * @author nolan
+ *
+ */
+public class HistoryModel {
+
+    private final Game game;
+    private final List<String> playerNames;
+
+    private volatile List<LineChartLine> chartLines;
+    private volatile CollatedHistory collatedHistory;
+
+    public HistoryModel(Context context, Game game) {
+        this.game = game;
+
+        List<String> names = new ArrayList<String>();
+        for (PlayerScore playerScore : game.getPlayerScores()) {
+            names.add(playerScore.toDisplayName(context));
+        }
+        this.playerNames = Collections.unmodifiableList(names);
+    }
+
+    public void prepareChart() {
+
+        List<LineChartLine> data = new ArrayList<LineChartLine>();
+
+        for (int i = 0; i < game.getPlayerScores().size(); i++) {
+            PlayerScore playerScore = game.getPlayerScores().get(i);
+            List<Integer> dataPoints = new ArrayList<Integer>();
+
+            // have to include the starting score as well
+            long runningTally = playerScore.getScore() - CollectionUtil.sum(playerScore.getHistory());
+            dataPoints.add((int) runningTally);
+
+            for (int delta : playerScore.getHistory()) {
+                runningTally += delta;
+                dataPoints.add((int) runningTally);
+            }
+
+            LineChartLine line = new LineChartLine();
+            line.setDataPoints(dataPoints);
+            line.setLabel(playerNames.get(i));
+
+            data.add(line);
+        }
+
+        chartLines = data;
+    }
+
+    public void prepareTables() {
+        collatedHistory = new CollatedHistory(game.getPlayerScores());
+    }
+
+    public boolean isChartReady() {
+        return chartLines != null;
+    }
+
+    public boolean isTablesReady() {
+        return collatedHistory != null;
+    }
+
+    public List<String> getPlayerNames() {
+        return playerNames;
+    }
+
+    public List<LineChartLine> getChartLines() {
+        return chartLines;
+    }
+
+    public CollatedHistory getCollatedHistory() {
+        return collatedHistory;
+    }
+}
@@ -0,0 +1,204 @@
+package com.nolanlawson.keepscore.data;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.helper.ColorScheme;
+import com.nolanlawson.keepscore.helper.PreferenceHelper;
+import com.nolanlawson.keepscore.util.IntegerUtil;
+
+/**
+ * Base for the history tables.  Tables are shown as lists, so only the rows on screen are ever inflated, and their
+ * cells are filled in as they're scrolled into view.  Each row is a horizontal strip of cells separated by dividers;
+ * header rows and regular rows are recycled separately.
+ *
+ * @author nolan
+ *
+ */
+public abstract class HistoryTableAdapter extends BaseAdapter {
+
+    protected static final int VIEW_TYPE_HEADER = 0;
+    protected static final int VIEW_TYPE_ROW = 1;
+
+    protected final LayoutInflater inflater;
+    private final Context context;
+    private final int positiveColor;
+    private final int negativeColor;
+    private final int neutralColor;
+
+    public HistoryTableAdapter(Context context) {
+        this.context = context;
+        this.inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+
+        Resources resources = context.getResources();
+        positiveColor = resources.getColor(PreferenceHelper.getGreenTextPreference(context)
+                ? ColorScheme.Light.getGreenPositiveColorResId() // green
+                : ColorScheme.Light.getPositiveColorResId()); // blue
+        negativeColor = resources.getColor(ColorScheme.Light.getNegativeColorResId()); // red
+        neutralColor = resources.getColor(android.R.color.primary_text_light_nodisable);
+    }
+
+    protected Context getContext() {
+        return context;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return null; // rows hold several cells
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return false; // tables are just for reading
+    }
+
+    protected LinearLayout createRow() {
+        LinearLayout row = new LinearLayout(context);
+        row.setOrientation(LinearLayout.HORIZONTAL);
+        row.setLayoutParams(new AbsListView.LayoutParams(AbsListView.LayoutParams.FILL_PARENT,
+                AbsListView.LayoutParams.WRAP_CONTENT));
+        return row;
+    }
+
+    protected View addDividerView(ViewGroup row) {
+        View view = inflater.inflate(R.layout.column_divider, row, false);
+        row.addView(view);
+        return view;
+    }
+
+    protected TextView addColumnHeader(ViewGroup row, boolean weightIsOne, boolean gravityCenter) {
+        TextView view = (TextView) inflater.inflate(R.layout.history_column_header, row, false);
+        if (gravityCenter) {
+            view.setGravity(Gravity.CENTER_HORIZONTAL);
+        }
+        row.addView(weightIsOne ? setLayoutWeightToOne(view) : view);
+        return view;
+    }
+
+    protected View addCell(ViewGroup row, int layoutResId) {
+        View view = inflater.inflate(layoutResId, row, false);
+        row.addView(setLayoutWeightToOne(view));
+        return view;
+    }
+
+    private View setLayoutWeightToOne(View view) {
+        view.setLayoutParams(new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.FILL_PARENT, 1.0F));
+        return view;
+    }
+
+    /**
+     * Show the player's delta and running total for the round, or leave the view empty if the player has no entry
+     * for it.
+     */
+    protected void bindHistoryItemView(View view, CollatedHistory history, int round, int player, int rowId) {
+
+        if (player >= history.getNumPlayers() || !history.hasEntry(round, player)) {
+            bindEmptyView(view, rowId);
+            return;
+        }
+        bindHistoryItemView(view, history.getDelta(round, player), history.getRunningTotal(round, player),
+                history.isStartingScore(round), rowId);
+    }
+
+    protected void bindHistoryItemView(View view, int delta, long runningTotal, boolean hideDelta, int rowId) {
+
+        setRowBackground(view, rowId);
+
+        TextView textView1 = (TextView) view.findViewById(android.R.id.text1);
+        TextView textView2 = (TextView) view.findViewById(android.R.id.text2);
+
+        textView2.setVisibility(View.VISIBLE);
+
+        if (hideDelta) {
+            setDummyTextView(textView1);
+            textView1.setVisibility(View.GONE); // set as gone to ensure that
+            // the first line isn't too tall
+            // when we use
+            // history_item_tall.xml
+        } else {
+            SpannableString deltaSpannable = new SpannableString(IntegerUtil.toStringWithSign(delta));
+
+            ForegroundColorSpan colorSpan = new ForegroundColorSpan(delta >= 0 ? positiveColor : negativeColor);
+            deltaSpannable.setSpan(colorSpan, 0, deltaSpannable.length(), Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
+
+            textView1.setVisibility(View.VISIBLE);
+            textView1.setText(deltaSpannable);
+        }
+
+        textView2.setText(Long.toString(runningTotal));
+    }
+
+    /**
+     * Leave the text views empty, e.g. for a player who hasn't played this round.
+     */
+    protected void bindEmptyView(View view, int rowId) {
+
+        setRowBackground(view, rowId);
+
+        setDummyTextView((TextView) view.findViewById(android.R.id.text1));
+        setDummyTextView((TextView) view.findViewById(android.R.id.text2));
+    }
+
+    /**
+     * Show a view that looks like a regular history item view, but is actually just a sum.
+     */
+    protected void bindSumView(View view, int rowId, long sum) {
+
+        setRowBackground(view, rowId);
+
+        TextView textView1 = (TextView) view.findViewById(android.R.id.text1);
+        TextView textView2 = (TextView) view.findViewById(android.R.id.text2);
+
+        textView1.setVisibility(View.VISIBLE);
+        textView1.setTextColor(neutralColor);
+        textView1.setText(Long.toString(sum));
+
+        setDummyTextView(textView2);
+    }
+
+    private void setRowBackground(View view, int rowId) {
+        // alternating colors for the background, from gray to white
+        view.setBackgroundColor(context.getResources().getColor(
+                rowId % 2 == 0 ? android.R.color.background_light : R.color.light_gray));
+    }
+
+    /**
+     * For some reason, on Honeycomb tablets I have to set the text view to have
+     * a dummy value and the visibility to INVISIBLE - I can't just set the text
+     * to null or empty. If I don't, the text isn't wrapped correctly
+     * vertically.
+     *
+     * @param textView
+     */
+    private static void setDummyTextView(TextView textView) {
+        textView.setVisibility(View.INVISIBLE);
+        textView.setText("0"); // dummy value
+    }
+}
@@ -0,0 +1,90 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.Collections;
+import java.util.List;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.db.GameDBHelper;
+import com.nolanlawson.keepscore.helper.PlayerNameHelper;
+
+/**
+ * Suggests player names from previous games as the user types.  Rather than filtering a list of every name ever
+ * used, each filter asks the database for the best matches for what's been typed so far (the filter runs in the
+ * background).  One adapter can be shared by all the name fields on a screen, since only the focused field shows
+ * its suggestions.  The adapter keeps its own database connection for all those lookups, so it has to be closed once
+ * the screen goes away.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerNameAdapter extends ArrayAdapter<String> {
+
+    private Filter filter;
+    private GameDBHelper dbHelper; // only used on the filter's thread, and opened the first time something is typed
+    private volatile boolean closed;
+
+    public PlayerNameAdapter(Context context) {
+        super(context, R.layout.simple_dropdown_small);
+    }
+
+    /**
+     * Close the database connection used for looking up suggestions.  Nothing more is suggested after this.  Doesn't
+     * wait for a lookup that's already running:  the connection is closed on the filter's thread once it's done.
+     */
+    public void close() {
+        closed = true;
+        getFilter().filter(null);
+    }
+
+    private List<String> findSuggestions(CharSequence prefix) {
+        List<String> suggestions;
+        if (closed) {
+            suggestions = Collections.emptyList();
+        } else {
+            if (dbHelper == null) {
+                dbHelper = new GameDBHelper(getContext());
+            }
+            suggestions = PlayerNameHelper.getPlayerNameSuggestions(dbHelper, prefix);
+        }
+        if (closed && dbHelper != null) {
+            dbHelper.close();
+            dbHelper = null;
+        }
+        return suggestions;
+    }
+
+    @Override
+    public Filter getFilter() {
+        if (filter == null) {
+            filter = new PlayerNameFilter();
+        }
+        return filter;
+    }
+
+    private class PlayerNameFilter extends Filter {
+
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> suggestions = findSuggestions(constraint);
+            FilterResults results = new FilterResults();
+            results.values = suggestions;
+            results.count = suggestions.size();
+            return results;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            for (String suggestion : (List<String>) results.values) {
+                add(suggestion);
+            }
+            notifyDataSetChanged();
+        }
+    }
+}
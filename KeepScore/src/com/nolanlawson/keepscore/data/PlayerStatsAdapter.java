@@ -0,0 +1,85 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.List;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.TextView;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.db.PlayerStats;
+
+/**
+ * Simple adapter for showing each player's totals across all saved games.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerStatsAdapter extends ArrayAdapter<PlayerStats> {
+
+    private static final int LAYOUT_RES_ID = R.layout.player_stats_item;
+
+    public PlayerStatsAdapter(Context context, List<PlayerStats> objects) {
+        super(context, LAYOUT_RES_ID, objects);
+    }
+
+    @Override
+    public View getView(int position, View view, ViewGroup parent) {
+
+        // view wrapper optimization per Romain Guy
+        final Context context = parent.getContext();
+        ViewWrapper viewWrapper;
+        if (view == null) {
+            LayoutInflater vi = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+            view = vi.inflate(LAYOUT_RES_ID, parent, false);
+            viewWrapper = new ViewWrapper(view);
+            view.setTag(viewWrapper);
+        } else {
+            viewWrapper = (ViewWrapper) view.getTag();
+        }
+
+        PlayerStats stats = getItem(position);
+
+        viewWrapper.getNameTextView().setText(stats.getName());
+        viewWrapper.getSummaryTextView().setText(context.getString(R.string.text_player_stats_summary,
+                stats.getWins(), stats.getAverageScore(), stats.getBestScore(), stats.getTotalRounds(),
+                Math.round(stats.getRating())));
+        viewWrapper.getNumGamesTextView().setText(Integer.toString(stats.getGamesPlayed()));
+
+        return view;
+    }
+
+    private static class ViewWrapper {
+
+        private View view;
+        private TextView nameTextView, summaryTextView, numGamesTextView;
+
+        public ViewWrapper(View view) {
+            this.view = view;
+        }
+
+        public TextView getNameTextView() {
+            if (nameTextView == null) {
+                nameTextView = (TextView) view.findViewById(R.id.text_player_name);
+            }
+            return nameTextView;
+        }
+
+        public TextView getSummaryTextView() {
+            if (summaryTextView == null) {
+                summaryTextView = (TextView) view.findViewById(R.id.text_player_stats_summary);
+            }
+            return summaryTextView;
+        }
+
+        public TextView getNumGamesTextView() {
+            if (numGamesTextView == null) {
+                numGamesTextView = (TextView) view.findViewById(R.id.text_num_games);
+            }
+            return numGamesTextView;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nolanlawson.keepscore.db.PlayerGameStats;
+
+/**
+ * Elo-style ratings for players across games.  Games have to be fed in the order they were played.  A game with more
+ * than two players counts as a match between every pair of players in it, where the higher score wins (and equal
+ * scores draw), so finishing ahead of more players earns more.  The changes are scaled down by the number of
+ * opponents, so that a game is worth about as much no matter how many people played.
+ *
+ * @author nolan
+ *
+ */
+public class RatingEngine {
+
+    public static final double INITIAL_RATING = 1500;
+
+    private static final double K_FACTOR = 32;
+
+    private Map<String, Double> ratings = new HashMap<String, Double>();
+
+    public boolean hasRating(String playerKey) {
+        return ratings.containsKey(playerKey);
+    }
+
+    public double getRating(String playerKey) {
+        Double rating = ratings.get(playerKey);
+        return rating != null ? rating : INITIAL_RATING;
+    }
+
+    public void setRating(String playerKey, double rating) {
+        ratings.put(playerKey, rating);
+    }
+
+    /**
+     * @return the current rating of every player that's been set or rated, by player key
+     */
+    public Map<String, Double> getRatings() {
+        return ratings;
+    }
+
+    /**
+     * Update the ratings of the players in a game.  Games where everybody is tied (e.g. they never really started)
+     * don't change anything.
+     *
+     * @param gameStats
+     *            the named players in the game
+     */
+    public void rateGame(List<PlayerGameStats> gameStats) {
+
+        int numPlayers = gameStats.size();
+        if (numPlayers < 2 || allTied(gameStats)) {
+            return;
+        }
+
+        // everybody's rating changes based on what it was before the game
+        double[] before = new double[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            before[i] = getRating(gameStats.get(i).getPlayerKey());
+        }
+
+        for (int i = 0; i < numPlayers; i++) {
+            double change = 0;
+            for (int j = 0; j < numPlayers; j++) {
+                if (i == j) {
+                    continue;
+                }
+                double expected = 1 / (1 + Math.pow(10, (before[j] - before[i]) / 400));
+                long score = gameStats.get(i).getScore();
+                long opponentScore = gameStats.get(j).getScore();
+                double actual = score > opponentScore ? 1 : score == opponentScore ? 0.5 : 0;
+                change += actual - expected;
+            }
+            setRating(gameStats.get(i).getPlayerKey(), before[i] + K_FACTOR * change / (numPlayers - 1));
+        }
+    }
+
+    private static boolean allTied(List<PlayerGameStats> gameStats) {
+        for (PlayerGameStats stats : gameStats) {
+            if (stats.getScore() != gameStats.get(0).getScore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,5 +1,9 @@
 package com.nolanlawson.keepscore.data;
 
+import java.util.List;
+
+import com.nolanlawson.keepscore.db.PlayerScore;
+
 /**
  * Simple POJO representing a change made to a PlayerScore's history
  * @author nolan
@@ -28,6 +32,61 @@ public class RecordedChange {
 	public int getValue() {
 		return value;
 	}
+	
+	/**
+	 * Apply this change to the player's score and history, i.e. play it forwards.
+	 * @param playerScore
+	 */
+	public void applyTo(PlayerScore playerScore) {
+	    List<Integer> history = playerScore.getHistory();
+	    switch (type) {
+	    case AddNew:
+	        history.add(value);
+	        playerScore.setScore(playerScore.getScore() + value);
+	        break;
+	    case DeleteLast:
+	    case DeleteLastZero:
+	        history.remove(history.size() - 1);
+	        playerScore.setScore(playerScore.getScore() - value);
+	        break;
+	    case ModifyLast:
+	    default:
+	        int lastIdx = history.size() - 1;
+	        history.set(lastIdx, history.get(lastIdx) + value);
+	        playerScore.setScore(playerScore.getScore() + value);
+	        break;
+	    }
+	}
+	
+	/**
+	 * Revert this change from the player's score and history, i.e. play it backwards.
+	 * @param playerScore
+	 */
+	public void revertFrom(PlayerScore playerScore) {
+	    List<Integer> history = playerScore.getHistory();
+	    switch (type) {
+	    case AddNew:
+	        history.remove(history.size() - 1);
+	        playerScore.setScore(playerScore.getScore() - value);
+	        break;
+	    case DeleteLast:
+	    case DeleteLastZero:
+	        history.add(value);
+	        playerScore.setScore(playerScore.getScore() + value);
+	        break;
+	    case ModifyLast:
+	    default:
+	        int lastIdx = history.size() - 1;
+	        history.set(lastIdx, history.get(lastIdx) - value);
+	        playerScore.setScore(playerScore.getScore() - value);
+	        break;
+	    }
+	}
+
+	@Override
+	public String toString() {
+		return "RecordedChange [playerNumber=" + playerNumber + ", type=" + type + ", value=" + value + "]";
+	}
 
 	public static enum Type {
 		/** New value is added to the score history */
@@ -1,13 +1,10 @@
 package com.nolanlawson.keepscore.data;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import android.content.Context;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,33 +16,67 @@ import android.widget.TextView;
 
 import com.nolanlawson.keepscore.R;
 import com.nolanlawson.keepscore.db.Game;
-import com.nolanlawson.keepscore.db.PlayerScore;
-import com.nolanlawson.keepscore.util.CollectionUtil;
-import com.nolanlawson.keepscore.util.CollectionUtil.Function;
-import com.nolanlawson.keepscore.util.Functions;
-import com.nolanlawson.keepscore.util.UtilLogger;
 
 public class SavedGameAdapter extends ArrayAdapter<Game> {
 
-    private static UtilLogger log = new UtilLogger(SavedGameAdapter.class);
-
-    private Set<Game> checked = new HashSet<Game>();
+    private GameSelection selection;
     private Runnable onCheckChangedRunnable;
+    private SavedGameRowCache rowCache;
 
-    public SavedGameAdapter(Context context, List<Game> values) {
+    public SavedGameAdapter(Context context, List<Game> values, SavedGameRowCache rowCache, GameSelection selection) {
 	super(context, R.layout.saved_game_item, values);
-    }
-
-    public Set<Game> getChecked() {
-	return checked;
+	this.rowCache = rowCache;
+	this.selection = selection;
     }
 
     public void setOnCheckChangedRunnable(Runnable onCheckChangedRunnable) {
 	this.onCheckChangedRunnable = onCheckChangedRunnable;
     }
 
-    public void setChecked(Set<Game> checked) {
-	this.checked = checked;
+    /**
+     * Bring the adapter in line with the given games (in display order), touching only the rows that were inserted,
+     * removed, moved or re-saved.  Rows are matched by game id and considered unchanged if their dateSaved is the
+     * same.
+     * 
+     * @return true if anything changed
+     */
+    public boolean updateGames(List<Game> newGames) {
+
+	setNotifyOnChange(false);
+	boolean changed = false;
+
+	Set<Integer> newIds = new HashSet<Integer>();
+	for (Game game : newGames) {
+	    newIds.add(game.getId());
+	}
+
+	// removed
+	for (int i = getCount() - 1; i >= 0; i--) {
+	    Game game = getItem(i);
+	    if (!newIds.contains(game.getId())) {
+		remove(game);
+		changed = true;
+	    }
+	}
+
+	// inserted, moved or re-saved
+	for (int i = 0; i < newGames.size(); i++) {
+	    Game newGame = newGames.get(i);
+	    Game existing = i < getCount() ? getItem(i) : null;
+	    if (existing != null && existing.getId() == newGame.getId()
+		    && existing.getDateSaved() == newGame.getDateSaved()) {
+		continue; // unchanged
+	    }
+	    int oldPosition = getPosition(newGame); // games are equal by id
+	    if (oldPosition != -1) {
+		remove(getItem(oldPosition));
+	    }
+	    insert(newGame, i);
+	    changed = true;
+	}
+
+	setNotifyOnChange(true);
+	return changed;
     }
 
     @Override
@@ -70,58 +101,26 @@ public class SavedGameAdapter extends ArrayAdapter<Game> {
 	CheckBox checkBox = viewWrapper.getCheckBox();
 
 	final Game game = getItem(position);
+	SavedGameRow row = rowCache.get(game);
 
-	StringBuilder gameTitle = new StringBuilder();
-	if (!TextUtils.isEmpty(game.getName())) {
-	    gameTitle.append(game.getName())
-	    	.append(" ")
-	    	.append(context.getString(R.string.text_game_name_separator))
-	    	.append(" ");
-	}
-	// Player 1, Player 2, Player3 etc.
-	gameTitle.append(TextUtils.join(", ",
-		CollectionUtil.transform(game.getPlayerScores(), new Function<PlayerScore, String>() {
-
-		    @Override
-		    public String apply(PlayerScore playerScore) {
-			return playerScore.toDisplayName(context);
-		    }
-		})));
-
-	titleTextView.setText(gameTitle);
-
-	numPlayersTextView.setText(Integer.toString(game.getPlayerScores().size()));
-
-	int numRounds = CollectionUtil.max(game.getPlayerScores(), Functions.PLAYER_SCORE_TO_HISTORY_SIZE);
-	int roundsResId = numRounds == 1 ? R.string.text_format_rounds_singular : R.string.text_format_rounds;
-	String rounds = String.format(context.getString(roundsResId), numRounds);
-
-	subtitleTextView.setText(rounds);
-
-	SimpleDateFormat simpleDateFormat = new SimpleDateFormat(getContext().getString(R.string.date_format));
-
-	savedTextView.setText(simpleDateFormat.format(new Date(game.getDateSaved())));
+	titleTextView.setText(row.getTitle());
+	numPlayersTextView.setText(row.getNumPlayers());
+	subtitleTextView.setText(row.getSubtitle());
+	savedTextView.setText(row.getSavedDate());
 
 	checkBox.setOnCheckedChangeListener(null);
-	checkBox.setChecked(checked.contains(game));
+	checkBox.setChecked(selection.isSelected(game));
 	checkBox.setOnCheckedChangeListener(new OnCheckedChangeListener() {
 
 	    @Override
 	    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-		if (isChecked) {
-		    checked.add(game);
-		} else {
-		    checked.remove(game);
-		}
+		selection.setSelected(game, isChecked);
 		if (onCheckChangedRunnable != null) {
 		    onCheckChangedRunnable.run();
 		}
 	    }
 	});
 
-	log.d("saved long is: %s", game.getDateSaved());
-	log.d("started long is: %s", game.getDateStarted());
-
 	return view;
     }
 
@@ -0,0 +1,96 @@
+package com.nolanlawson.keepscore.data;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerScore;
+import com.nolanlawson.keepscore.util.CollectionUtil;
+import com.nolanlawson.keepscore.util.Functions;
+
+/**
+ * Everything shown in one row of the saved games list, worked out ahead of time so that binding a row is just a few
+ * setText() calls.
+ * 
+ * @author nolan
+ *
+ */
+public final class SavedGameRow {
+
+	private final int gameId;
+	private final long dateSaved;
+	private final String gameName;
+	private final String title;
+	private final String numPlayers;
+	private final String subtitle;
+	private final String savedDate;
+	
+	private SavedGameRow(Game game, String title, String numPlayers, String subtitle, String savedDate) {
+		this.gameId = game.getId();
+		this.dateSaved = game.getDateSaved();
+		this.gameName = game.getName();
+		this.title = title;
+		this.numPlayers = numPlayers;
+		this.subtitle = subtitle;
+		this.savedDate = savedDate;
+	}
+	
+	/**
+	 * @param dateFormat not thread-safe, so the caller has to make sure it's only used by one thread at a time
+	 */
+	public static SavedGameRow create(Context context, Game game, DateFormat dateFormat) {
+		
+		StringBuilder title = new StringBuilder();
+		if (!TextUtils.isEmpty(game.getName())) {
+			title.append(game.getName())
+				.append(" ")
+				.append(context.getString(R.string.text_game_name_separator))
+				.append(" ");
+		}
+		// Player 1, Player 2, Player3 etc.
+		String playerSeparator = "";
+		for (PlayerScore playerScore : game.getPlayerScores()) {
+			title.append(playerSeparator).append(playerScore.toDisplayName(context));
+			playerSeparator = ", ";
+		}
+		
+		int numRounds = CollectionUtil.max(game.getPlayerScores(), Functions.PLAYER_SCORE_TO_HISTORY_SIZE);
+		int roundsResId = numRounds == 1 ? R.string.text_format_rounds_singular : R.string.text_format_rounds;
+		String subtitle = String.format(context.getString(roundsResId), numRounds);
+		
+		return new SavedGameRow(game, title.toString(), Integer.toString(game.getPlayerScores().size()), subtitle,
+				dateFormat.format(new Date(game.getDateSaved())));
+	}
+	
+	/**
+	 * @return true if this row still reflects the game, i.e. it hasn't been saved or renamed since
+	 */
+	public boolean isUpToDate(Game game) {
+		return gameId == game.getId() && dateSaved == game.getDateSaved() 
+				&& TextUtils.equals(gameName, game.getName());
+	}
+
+	public int getGameId() {
+		return gameId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getNumPlayers() {
+		return numPlayers;
+	}
+
+	public String getSubtitle() {
+		return subtitle;
+	}
+
+	public String getSavedDate() {
+		return savedDate;
+	}
+}
@@ -0,0 +1,72 @@
+package com.nolanlawson.keepscore.data;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.Context;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.db.Game;
+
+/**
+ * Keeps the {@link SavedGameRow} for each game in the saved games list, keyed by game id.  Rows are normally
+ * prepared in the background when the list is loaded; a row that's missing or out of date is just created on the
+ * spot.
+ * 
+ * @author nolan
+ *
+ */
+public class SavedGameRowCache {
+
+	private final Context context;
+	private final String datePattern;
+	private final DateFormat dateFormat; // only used under the lock
+	private final Map<Integer, SavedGameRow> rows = new HashMap<Integer, SavedGameRow>();
+	
+	public SavedGameRowCache(Context context) {
+		this.context = context.getApplicationContext();
+		this.datePattern = context.getString(R.string.date_format);
+		this.dateFormat = new SimpleDateFormat(datePattern);
+	}
+	
+	public synchronized SavedGameRow get(Game game) {
+		SavedGameRow row = rows.get(game.getId());
+		if (row == null || !row.isUpToDate(game)) {
+			row = SavedGameRow.create(context, game, dateFormat);
+			rows.put(game.getId(), row);
+		}
+		return row;
+	}
+	
+	/**
+	 * Create the rows for the given games ahead of time, and forget about any other games.  Meant to be called off
+	 * the UI thread.  The rows are built without holding the lock, so that {@link #get(Game)} on the UI thread only
+	 * ever waits for the rows to be swapped in.
+	 */
+	public void prepare(Collection<Game> games) {
+		Map<Integer, SavedGameRow> existingRows;
+		synchronized (this) {
+			existingRows = new HashMap<Integer, SavedGameRow>(rows);
+		}
+		
+		// the shared date format isn't thread-safe
+		DateFormat backgroundDateFormat = new SimpleDateFormat(datePattern);
+		Map<Integer, SavedGameRow> preparedRows = new HashMap<Integer, SavedGameRow>();
+		for (Game game : games) {
+			SavedGameRow row = existingRows.get(game.getId());
+			if (row == null || !row.isUpToDate(game)) {
+				row = SavedGameRow.create(context, game, backgroundDateFormat);
+			}
+			preparedRows.put(game.getId(), row);
+		}
+		
+		synchronized (this) {
+			// any row that's gone out of date in the meantime is just created again by get()
+			rows.clear();
+			rows.putAll(preparedRows);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.nolanlawson.keepscore.data;
+
+import java.util.List;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.util.Callback;
+import com.nolanlawson.keepscore.widget.PlayerView;
+
+/**
+ * Adapter for the scrolling scoreboard used in games with lots of players.  Only enough player_score cells for
+ * the visible rows are ever inflated; as the user scrolls, each recycled cell is detached from the PlayerView it
+ * was showing and attached to the new one.
+ *
+ * @author nolan
+ *
+ */
+public class ScoreboardAdapter extends BaseAdapter {
+
+    private List<PlayerView> playerViews;
+    private int cellHeight;
+    private Callback<PlayerView> onPlayerViewAttached;
+    private LayoutInflater inflater;
+
+    /**
+     * @param playerViews
+     *            the (initially detached) PlayerViews, one per player
+     * @param cellHeight
+     *            height of each cell in pixels
+     * @param onPlayerViewAttached
+     *            called whenever a PlayerView is attached to a cell, e.g. to style it
+     */
+    public ScoreboardAdapter(Context context, List<PlayerView> playerViews, int cellHeight,
+            Callback<PlayerView> onPlayerViewAttached) {
+        this.playerViews = playerViews;
+        this.cellHeight = cellHeight;
+        this.onPlayerViewAttached = onPlayerViewAttached;
+        this.inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    }
+
+    @Override
+    public int getCount() {
+        return playerViews.size();
+    }
+
+    @Override
+    public PlayerView getItem(int position) {
+        return playerViews.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return false; // the buttons inside each cell are clickable, not the cell itself
+    }
+
+    @Override
+    public View getView(int position, View view, ViewGroup parent) {
+
+        if (view == null) {
+            view = inflater.inflate(R.layout.player_score, parent, false);
+            view.setLayoutParams(new AbsListView.LayoutParams(AbsListView.LayoutParams.FILL_PARENT, cellHeight));
+        }
+
+        PlayerView playerView = playerViews.get(position);
+        PlayerView previousPlayerView = (PlayerView) view.getTag();
+
+        if (previousPlayerView != playerView && previousPlayerView != null
+                && previousPlayerView.getView() == view) {
+            previousPlayerView.detachView();
+        }
+
+        if (playerView.getView() != view) {
+            playerView.attachView(view);
+            onPlayerViewAttached.onCallback(playerView);
+        }
+
+        view.setTag(playerView);
+
+        return view;
+    }
+}
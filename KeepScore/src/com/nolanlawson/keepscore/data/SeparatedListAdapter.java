@@ -1,13 +1,14 @@
 package com.nolanlawson.keepscore.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import android.content.Context;
+import android.database.DataSetObserver;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -38,6 +39,25 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 	public TypeCheckingArrayAdapter<String> headers;
 
 	private SectionIndexer sectionIndexer;
+	
+	// position of each section header in the list, so that a position can be mapped to its section with a binary
+	// search.  Rebuilt lazily whenever the sections or their contents change.
+	private int[] sectionStarts;
+	private List<T> sectionAdapters;
+	private int totalCount;
+	
+	private final DataSetObserver subAdapterObserver = new DataSetObserver() {
+
+		@Override
+		public void onChanged() {
+			sectionStarts = null;
+		}
+
+		@Override
+		public void onInvalidated() {
+			sectionStarts = null;
+		}
+	};
 
 	public SeparatedListAdapter(Context context) {
 		headers = new TypeCheckingArrayAdapter<String>(context, R.layout.list_header);
@@ -58,6 +78,8 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 	public void addSection(String section, T adapter) {
 		this.headers.add(section);
 		this.sections.put(section, adapter);
+		adapter.registerDataSetObserver(subAdapterObserver);
+		sectionStarts = null;
 	}
 	
 	/**
@@ -83,6 +105,8 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 			}
 		}
 		sections = newSections;
+		adapter.registerDataSetObserver(subAdapterObserver);
+		sectionStarts = null;
 	}
 	
 	public ArrayAdapter<String> getSectionHeaders() {
@@ -91,28 +115,21 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 	
 
 	public Object getItem(int position) {
-		for(Entry<String, T> entry : sections.entrySet()) {
-			String section = entry.getKey();
-			T adapter = entry.getValue();
-			int size = adapter.getCount() + 1;
-
-			// check if position inside this section
-			if(position == 0) return section;
-			if(position < size) return adapter.getItem(position - 1);
-
-			// otherwise jump into next section
-			position -= size;
+		int sectionIndex = findSectionIndex(position);
+		if (sectionIndex == -1) {
+			return null;
+		}
+		int offset = position - sectionStarts[sectionIndex];
+		if (offset == 0) {
+			return headers.getItem(sectionIndex);
 		}
-		return null;
+		return sectionAdapters.get(sectionIndex).getItem(offset - 1);
 	}
 
 	public int getCount() {
 		// total together all sections, plus one for each section header
-		int total = 0;
-		for(T adapter : this.sections.values()) {
-			total += adapter.getCount() + 1;
-		}
-		return total;
+		ensureSectionStarts();
+		return totalCount;
 	}
 
 	public int getViewTypeCount() {
@@ -120,17 +137,11 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 	}
 
 	public int getItemViewType(int position) {
-		for(T adapter : sections.values()) {
-			int size = adapter.getCount() + 1;
-
-			// check if position inside this section
-			if(position == 0) return TYPE_SECTION_HEADER;
-			if(position < size) return TYPE_SECTION_CONTENT;
-
-			// otherwise jump into next section
-			position -= size;
+		int sectionIndex = findSectionIndex(position);
+		if (sectionIndex == -1) {
+			return -1;
 		}
-		return -1;
+		return position == sectionStarts[sectionIndex] ? TYPE_SECTION_HEADER : TYPE_SECTION_CONTENT;
 	}
 
 	public boolean areAllItemsSelectable() {
@@ -138,39 +149,72 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 	}
 
 	public boolean isEnabled(int position) {
-
-		if (getItemViewType(position) == TYPE_SECTION_HEADER) {
-			return false;
-		} else {
-			for(T adapter : this.sections.values()) {
-				int size = adapter.getCount() + 1;
-
-				// check if position inside this section
-				if(position < size) return adapter.isEnabled(position - 1);
-
-				// otherwise jump into next section
-				position -= size;
-			}
+		int sectionIndex = findSectionIndex(position);
+		if (sectionIndex == -1 || position == sectionStarts[sectionIndex]) {
 			return false;
 		}
-
+		return sectionAdapters.get(sectionIndex).isEnabled(position - sectionStarts[sectionIndex] - 1);
 	}
 
 	@Override
 	public View getView(int position, View convertView, ViewGroup parent) {
-		int sectionnum = 0;
-		for(T adapter : this.sections.values()) {
-			int size = adapter.getCount() + 1;
-
-			// check if position inside this section
-			if(position == 0) return headers.getView(sectionnum, convertView, parent);
-			if(position < size) return adapter.getView(position - 1, convertView, parent);
-
-			// otherwise jump into next section
-			position -= size;
-			sectionnum++;
+		int sectionIndex = findSectionIndex(position);
+		if (sectionIndex == -1) {
+			return null;
+		}
+		int offset = position - sectionStarts[sectionIndex];
+		if (offset == 0) {
+			return headers.getView(sectionIndex, convertView, parent);
+		}
+		return sectionAdapters.get(sectionIndex).getView(offset - 1, convertView, parent);
+	}
+	
+	@Override
+	public void notifyDataSetChanged() {
+		sectionStarts = null;
+		super.notifyDataSetChanged();
+	}
+	
+	@Override
+	public void notifyDataSetInvalidated() {
+		sectionStarts = null;
+		super.notifyDataSetInvalidated();
+	}
+	
+	private void ensureSectionStarts() {
+		if (sectionStarts != null) {
+			return;
+		}
+		int[] starts = new int[sections.size()];
+		List<T> adapters = new ArrayList<T>(sections.values());
+		int runningCount = 0;
+		for (int i = 0; i < adapters.size(); i++) {
+			starts[i] = runningCount;
+			runningCount += adapters.get(i).getCount() + 1;
+		}
+		totalCount = runningCount;
+		sectionAdapters = adapters;
+		sectionStarts = starts;
+	}
+	
+	/**
+	 * @return the index of the section containing the position, or -1 if it's out of range
+	 */
+	private int findSectionIndex(int position) {
+		ensureSectionStarts();
+		if (position < 0 || position >= totalCount) {
+			return -1;
+		}
+		return findSectionIndex(sectionStarts, position);
+	}
+	
+	private static int findSectionIndex(int[] starts, int position) {
+		int index = Arrays.binarySearch(starts, position);
+		if (index < 0) {
+			// not a header, so take the closest header before it
+			index = -index - 2;
 		}
-		return null;
+		return index;
 	}
 	
 	/**
@@ -188,11 +232,16 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 
 	public void removeSection(String section) {
 		headers.remove(section);
-		sections.remove(section);
+		T adapter = sections.remove(section);
+		if (adapter != null) {
+			adapter.unregisterDataSetObserver(subAdapterObserver);
+		}
+		sectionStarts = null;
 	}
 	
 	public void refreshSections() {
 		sectionIndexer = null;
+		sectionStarts = null;
 		getSections();
 	}
 
@@ -229,26 +278,9 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 			return createEmptySectionIndexer();
 		}
 		
-		List<String> sectionNames = new ArrayList<String>();
-		final List<Integer> sectionsToPositions = new ArrayList<Integer>();
-		final List<Integer> positionsToSections = new ArrayList<Integer>();
-		
-		int runningCount = 0;
-		for (Entry<String,T> entry : sections.entrySet()) {
-			String section = entry.getKey();
-			T subAdapter = entry.getValue();
-			
-			sectionNames.add(section);
-			sectionsToPositions.add(runningCount);
-			
-			int size = subAdapter.getCount() + 1;
-			for (int i = 0; i < size; i++) {
-				positionsToSections.add(sectionNames.size() - 1);
-			}
-			runningCount += size;
-		}
-		
-		final Object[] sectionNamesArray = sectionNames.toArray();
+		ensureSectionStarts();
+		final Object[] sectionNamesArray = sections.keySet().toArray();
+		final int[] starts = sectionStarts;
 		
 		return new SectionIndexer() {
 			
@@ -259,12 +291,12 @@ public class SeparatedListAdapter<T extends BaseAdapter> extends BaseAdapter imp
 			
 			@Override
 			public int getSectionForPosition(int position) {
-				return positionsToSections.get(position);
+				return Math.max(0, findSectionIndex(starts, position));
 			}
 			
 			@Override
 			public int getPositionForSection(int section) {
-				return sectionsToPositions.get(section);
+				return starts[Math.max(0, Math.min(section, sectionNamesArray.length - 1))];
 			}
 		};
 	}
@@ -1,5 +1,6 @@
 package com.nolanlawson.keepscore.data;
 
+import java.util.Arrays;
 import java.util.Date;
 
 import com.nolanlawson.keepscore.R;
@@ -46,5 +47,40 @@ public enum TimePeriod {
 		return endDateFunction;
 	}
 	
+	/**
+	 * Compute where each time period starts, relative to the given date.  This is done once per refresh, so that
+	 * putting each game into a time period is just a binary search rather than a bunch of Calendar arithmetic.
+	 */
+	public static Boundaries computeBoundaries(Date date) {
+		return new Boundaries(date);
+	}
 	
+	public static class Boundaries {
+		
+		// start times of the time periods, from oldest to newest (i.e. the reverse of values())
+		private final long[] startTimes;
+		
+		private Boundaries(Date date) {
+			TimePeriod[] timePeriods = values();
+			startTimes = new long[timePeriods.length];
+			for (int i = 0; i < timePeriods.length; i++) {
+				startTimes[timePeriods.length - 1 - i] = timePeriods[i].getStartDateFunction().apply(date).getTime();
+			}
+		}
+		
+		/**
+		 * Find the time period containing the given time.  Anything newer than the start of today counts as today.
+		 */
+		public TimePeriod getTimePeriod(long time) {
+			int index = Arrays.binarySearch(startTimes, time);
+			if (index < 0) {
+				// not an exact match, so take the closest start time before it
+				index = -index - 2;
+			}
+			if (index < 0) {
+				return Older; // before the epoch
+			}
+			return values()[startTimes.length - 1 - index];
+		}
+	}
 }
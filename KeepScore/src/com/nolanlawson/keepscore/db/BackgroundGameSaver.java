@@ -0,0 +1,99 @@
+package com.nolanlawson.keepscore.db;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import android.content.Context;
+import android.os.Process;
+
+import com.nolanlawson.keepscore.data.GameEventLog;
+import com.nolanlawson.keepscore.helper.LatencyTracker;
+import com.nolanlawson.keepscore.helper.LatencyTracker.Operation;
+import com.nolanlawson.keepscore.util.UtilLogger;
+
+/**
+ * Saves games on a single background thread, so that leaving the game screen doesn't have to wait for the database.
+ * Saves are committed in the order they were requested, each with its own GameDBHelper, so they don't depend on
+ * the lifecycle of the activity that asked for them.
+ *
+ * @author nolan
+ *
+ */
+public class BackgroundGameSaver {
+
+    private static final UtilLogger log = new UtilLogger(BackgroundGameSaver.class);
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "BackgroundGameSaver");
+            return thread;
+        }
+    });
+
+    /**
+     * Save only the changes in the event log, and a snapshot if one is due.  Recording the log is cheap, so the
+     * caller can keep changing the game; anything recorded before the save starts will be included.
+     */
+    public static void save(Context context, final GameEventLog eventLog) {
+        final Context applicationContext = context.getApplicationContext();
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                long startTime = LatencyTracker.start();
+                GameDBHelper dbHelper = null;
+                try {
+                    dbHelper = new GameDBHelper(applicationContext);
+                    dbHelper.saveGame(eventLog);
+                    log.d("saved game in background: %s", eventLog.getGame());
+                } finally {
+                    if (dbHelper != null) {
+                        dbHelper.close();
+                    }
+                }
+                LatencyTracker.record(Operation.Autosave, startTime);
+            }
+        });
+    }
+
+    /**
+     * Wait for all the saves requested so far to be committed, but no longer than the timeout.
+     *
+     * @return true if everything was saved, false if some saves are still running
+     */
+    public static boolean flush(long timeoutMs) {
+        Future<?> future = executor.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                // nothing to do; just marks the end of the queue
+            }
+        });
+        try {
+            future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.w("saves still pending after %d ms", timeoutMs);
+        } catch (InterruptedException e) {
+            log.w(e, "interrupted while waiting for saves");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.e(e, "unexpected");
+        }
+        return false;
+    }
+}
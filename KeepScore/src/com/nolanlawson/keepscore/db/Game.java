@@ -18,6 +18,8 @@ public class Game implements Parcelable, Cloneable {
 	private long dateSaved;
 	private String name;
 	private List<PlayerScore> playerScores;
+	private int eventSequence;
+	private int snapshotSequence;
 	
 	public Game() {
 	}
@@ -27,13 +29,13 @@ public class Game implements Parcelable, Cloneable {
 		dateStarted = in.readLong();
 		dateSaved = in.readLong();
 		name = in.readString();
-		playerScores = new ArrayList<PlayerScore>();
-		while (true) {
- 			PlayerScore playerScore = in.readParcelable(PlayerScore.class.getClassLoader());
- 			if (playerScore == null) {
- 				break;
- 			}
-			playerScores.add(playerScore);
+		eventSequence = in.readInt();
+		snapshotSequence = in.readInt();
+		// the player scores are written inline, without the class name that writeParcelable() would add
+		int numPlayerScores = in.readInt();
+		playerScores = new ArrayList<PlayerScore>(numPlayerScores);
+		for (int i = 0; i < numPlayerScores; i++) {
+			playerScores.add(new PlayerScore(in));
 		}
 
 	}
@@ -62,6 +64,26 @@ public class Game implements Parcelable, Cloneable {
 	public void setDateSaved(long dateSaved) {
 		this.dateSaved = dateSaved;
 	}
+	/**
+	 * Sequence number of the last RecordedChange that has been applied to this game's PlayerScores.
+	 * @return
+	 */
+	public int getEventSequence() {
+		return eventSequence;
+	}
+	public void setEventSequence(int eventSequence) {
+		this.eventSequence = eventSequence;
+	}
+	/**
+	 * Sequence number at which the PlayerScores were last written out in full to the database.
+	 * @return
+	 */
+	public int getSnapshotSequence() {
+		return snapshotSequence;
+	}
+	public void setSnapshotSequence(int snapshotSequence) {
+		this.snapshotSequence = snapshotSequence;
+	}
 	public List<PlayerScore> getPlayerScores() {
 		return playerScores;
 	}
@@ -94,9 +116,12 @@ public class Game implements Parcelable, Cloneable {
 		dest.writeLong(dateStarted);
 		dest.writeLong(dateSaved);
 		dest.writeString(name);
+		dest.writeInt(eventSequence);
+		dest.writeInt(snapshotSequence);
 		
+		dest.writeInt(playerScores.size());
 		for (PlayerScore playerScore : playerScores) {
-			dest.writeParcelable(playerScore, 0);
+			playerScore.writeToParcel(dest, flags);
 		}
 	}
 	
@@ -117,6 +142,8 @@ public class Game implements Parcelable, Cloneable {
 		game.setDateStarted(dateStarted);
 		game.setId(id);
 		game.setName(name);
+		game.setEventSequence(eventSequence);
+		game.setSnapshotSequence(snapshotSequence);
 		game.setPlayerScores(CollectionUtil.transform(playerScores, new Function<PlayerScore,PlayerScore>(){
 
 			@Override
@@ -165,6 +192,8 @@ public class Game implements Parcelable, Cloneable {
 		newGame.setId(-1);
 		newGame.setDateStarted(System.currentTimeMillis());
 		newGame.setDateSaved(0);
+		newGame.setEventSequence(0);
+		newGame.setSnapshotSequence(0);
 		
 		for (PlayerScore playerScore : newGame.getPlayerScores()) {
 			playerScore.setId(-1);
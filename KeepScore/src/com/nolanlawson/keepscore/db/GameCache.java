@@ -0,0 +1,70 @@
+package com.nolanlawson.keepscore.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of the most recently used games, so that activities can pass around just a game id rather than
+ * parceling the whole game.  Entries are dropped whenever the game is changed in the database (see
+ * {@link GameDBHelper}), so a cached game always matches what was last saved.
+ *
+ * Cached games are shared, so anyone who wants to modify one should clone it first.
+ *
+ * @author nolan
+ *
+ */
+public class GameCache {
+
+    private static final int MAX_SIZE = 10;
+
+    @SuppressWarnings("serial")
+    private static final Map<Integer, Game> games = new LinkedHashMap<Integer, Game>(MAX_SIZE * 2, 0.75F, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Game> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    // bumped on every invalidation, so a game loaded before an invalidation doesn't get cached afterwards
+    private static int generation;
+
+    public static synchronized Game get(int gameId) {
+        return games.get(gameId);
+    }
+
+    /**
+     * Get the game from the cache, or load it from the database if it isn't there.
+     *
+     * @return the game, or null if it doesn't exist
+     */
+    public static Game getOrLoad(GameDBHelper dbHelper, int gameId) {
+        int generationBeforeLoad;
+        synchronized (GameCache.class) {
+            Game game = games.get(gameId);
+            if (game != null) {
+                return game;
+            }
+            generationBeforeLoad = generation;
+        }
+
+        Game game = dbHelper.findGameById(gameId);
+
+        synchronized (GameCache.class) {
+            if (game != null && generation == generationBeforeLoad) {
+                games.put(gameId, game);
+            }
+        }
+        return game;
+    }
+
+    public static synchronized void invalidate(int gameId) {
+        generation++;
+        games.remove(gameId);
+    }
+
+    public static synchronized void clear() {
+        generation++;
+        games.clear();
+    }
+}
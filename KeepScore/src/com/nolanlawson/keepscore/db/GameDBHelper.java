@@ -1,9 +1,12 @@
 package com.nolanlawson.keepscore.db;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -13,8 +16,11 @@ import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
+import com.nolanlawson.keepscore.data.GameEventLog;
+import com.nolanlawson.keepscore.data.GameEventLog.PendingSave;
+import com.nolanlawson.keepscore.data.RatingEngine;
+import com.nolanlawson.keepscore.data.RecordedChange;
 import com.nolanlawson.keepscore.util.CollectionUtil;
-import com.nolanlawson.keepscore.util.CollectionUtil.Function;
 import com.nolanlawson.keepscore.util.StringUtil;
 import com.nolanlawson.keepscore.util.UtilLogger;
 
@@ -23,10 +29,18 @@ public class GameDBHelper extends SQLiteOpenHelper {
     private static UtilLogger log = new UtilLogger(GameDBHelper.class);
 
     private static final String DB_NAME = "games.db";
-    private static final int DB_VERSION = 3;
+    private static final int DB_VERSION = 4;
 
     private static final String TABLE_GAMES = "Games";
     private static final String TABLE_PLAYER_SCORES = "PlayerScores";
+    private static final String TABLE_GAME_EVENTS = "GameEvents";
+    private static final String TABLE_GAME_SEARCH = "GameSearch";
+    private static final String TABLE_PLAYER_GAME_STATS = "PlayerGameStats";
+    private static final String TABLE_PLAYER_STATS = "PlayerStats";
+    private static final String TABLE_PLAYER_STATS_REBUILD = "PlayerStatsRebuild";
+    private static final String TABLE_PLAYER_RATINGS = "PlayerRatings";
+    private static final String TABLE_RATING_REPLAY = "RatingReplay";
+    private static final String TABLE_PLAYERS = "Players";
 
     private static final String COLUMN_ID = "_id";
     private static final String COLUMN_DATE_STARTED = "dateStarted";
@@ -38,6 +52,30 @@ public class GameDBHelper extends SQLiteOpenHelper {
     private static final String COLUMN_GAME_ID = "gameId";
     private static final String COLUMN_HISTORY = "history";
     private static final String COLUMN_LAST_UPDATE = "lastUpdate";
+    private static final String COLUMN_EVENT_SEQUENCE = "eventSequence";
+    private static final String COLUMN_SNAPSHOT_SEQUENCE = "snapshotSequence";
+    private static final String COLUMN_SEQUENCE = "sequence";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_VALUE = "value";
+    private static final String COLUMN_DOCID = "docid";
+    private static final String COLUMN_NAMES = "names";
+    private static final String COLUMN_PLAYER_KEY = "playerKey";
+    private static final String COLUMN_ROUNDS = "rounds";
+    private static final String COLUMN_WON = "won";
+    private static final String COLUMN_GAMES_PLAYED = "gamesPlayed";
+    private static final String COLUMN_WINS = "wins";
+    private static final String COLUMN_TOTAL_SCORE = "totalScore";
+    private static final String COLUMN_BEST_SCORE = "bestScore";
+    private static final String COLUMN_TOTAL_ROUNDS = "totalRounds";
+    private static final String COLUMN_RATING = "rating";
+    private static final String COLUMN_USAGE_COUNT = "usageCount";
+    private static final String COLUMN_LAST_USED = "lastUsed";
+
+    // max number of events that can be stored after a game's snapshot before the whole game gets written out again
+    private static final int SNAPSHOT_INTERVAL = 50;
+    
+    // max number of games to delete in a single statement
+    private static final int DELETE_BATCH_SIZE = 500;
 
     private static final String JOINED_TABLES = TABLE_GAMES + " g join " + TABLE_PLAYER_SCORES + " ps ON " + "g."
             + COLUMN_ID + "=ps." + COLUMN_GAME_ID;
@@ -51,14 +89,46 @@ public class GameDBHelper extends SQLiteOpenHelper {
         "ps." + COLUMN_SCORE,
         "ps." + COLUMN_PLAYER_NUMBER, 
         "ps." + COLUMN_HISTORY, 
-        "ps." + COLUMN_LAST_UPDATE };
+        "ps." + COLUMN_LAST_UPDATE,
+        "g." + COLUMN_EVENT_SEQUENCE,
+        "g." + COLUMN_SNAPSHOT_SEQUENCE };
 
     private ThreadLocal<SQLiteStatement> updateGame = new ThreadLocal<SQLiteStatement>() {
 
         @Override
         protected SQLiteStatement initialValue() {
             String sql = "update " + TABLE_GAMES + " set " + COLUMN_DATE_STARTED + "=?," + COLUMN_DATE_SAVED + "=?,"
-                    + COLUMN_NAME + "=? " + "where " + COLUMN_ID + "=?";
+                    + COLUMN_NAME + "=?," + COLUMN_EVENT_SEQUENCE + "=?," + COLUMN_SNAPSHOT_SEQUENCE + "=? " + "where "
+                    + COLUMN_ID + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> updateGameEventSequence = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "update " + TABLE_GAMES + " set " + COLUMN_DATE_SAVED + "=?," + COLUMN_EVENT_SEQUENCE + "=? "
+                    + "where " + COLUMN_ID + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> countGamesById = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "select count(*) from " + TABLE_GAMES + " where " + COLUMN_ID + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> insertGameEvent = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "insert into " + TABLE_GAME_EVENTS + " (" + COLUMN_GAME_ID + "," + COLUMN_SEQUENCE + ","
+                    + COLUMN_PLAYER_NUMBER + "," + COLUMN_TYPE + "," + COLUMN_VALUE + ") values (?,?,?,?,?)";
             return db.compileStatement(sql);
         }
     };
@@ -74,6 +144,101 @@ public class GameDBHelper extends SQLiteOpenHelper {
         }
     };
 
+    private ThreadLocal<SQLiteStatement> insertPlayerGameStats = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "insert into " + TABLE_PLAYER_GAME_STATS + " (" + COLUMN_GAME_ID + "," + COLUMN_PLAYER_KEY
+                    + "," + COLUMN_NAME + "," + COLUMN_SCORE + "," + COLUMN_ROUNDS + "," + COLUMN_WON + ","
+                    + COLUMN_DATE_STARTED + ") values (?,?,?,?,?,?,?)";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> insertPlayerStats = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "insert or ignore into " + TABLE_PLAYER_STATS + " (" + COLUMN_PLAYER_KEY + "," + COLUMN_NAME
+                    + "," + COLUMN_GAMES_PLAYED + "," + COLUMN_WINS + "," + COLUMN_TOTAL_SCORE + ","
+                    + COLUMN_TOTAL_ROUNDS + ") values (?,?,0,0,0,0)";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> addToPlayerStats = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            // the best score is just the new score if this is the player's only game
+            String sql = "update " + TABLE_PLAYER_STATS + " set " + COLUMN_NAME + "=?," + COLUMN_GAMES_PLAYED + "="
+                    + COLUMN_GAMES_PLAYED + "+1," + COLUMN_WINS + "=" + COLUMN_WINS + "+?," + COLUMN_TOTAL_SCORE + "="
+                    + COLUMN_TOTAL_SCORE + "+?," + COLUMN_TOTAL_ROUNDS + "=" + COLUMN_TOTAL_ROUNDS + "+?,"
+                    + COLUMN_BEST_SCORE + "=case when " + COLUMN_GAMES_PLAYED + "=0 or ?>" + COLUMN_BEST_SCORE
+                    + " then ? else " + COLUMN_BEST_SCORE + " end where " + COLUMN_PLAYER_KEY + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> subtractFromPlayerStats = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            // the best score only has to be looked up again if it was one of the scores taken out
+            String sql = "update " + TABLE_PLAYER_STATS + " set " + COLUMN_GAMES_PLAYED + "=" + COLUMN_GAMES_PLAYED
+                    + "-?," + COLUMN_WINS + "=" + COLUMN_WINS + "-?," + COLUMN_TOTAL_SCORE + "=" + COLUMN_TOTAL_SCORE
+                    + "-?," + COLUMN_TOTAL_ROUNDS + "=" + COLUMN_TOTAL_ROUNDS + "-?," + COLUMN_BEST_SCORE
+                    + "=case when ?>=" + COLUMN_BEST_SCORE + " then (select max(" + COLUMN_SCORE + ") from "
+                    + TABLE_PLAYER_GAME_STATS + " where " + COLUMN_PLAYER_KEY + "=?) else " + COLUMN_BEST_SCORE
+                    + " end where " + COLUMN_PLAYER_KEY + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> deleteEmptyPlayerStats = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "delete from " + TABLE_PLAYER_STATS + " where " + COLUMN_PLAYER_KEY + "=? and "
+                    + COLUMN_GAMES_PLAYED + "<=0";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> insertPlayerRating = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "insert into " + TABLE_PLAYER_RATINGS + " (" + COLUMN_GAME_ID + "," + COLUMN_PLAYER_KEY + ","
+                    + COLUMN_DATE_STARTED + "," + COLUMN_RATING + ") values (?,?,?,?)";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> deletePlayer = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            String sql = "delete from " + TABLE_PLAYERS + " where " + COLUMN_PLAYER_KEY + "=?";
+            return db.compileStatement(sql);
+        }
+    };
+
+    private ThreadLocal<SQLiteStatement> insertPlayer = new ThreadLocal<SQLiteStatement>() {
+
+        @Override
+        protected SQLiteStatement initialValue() {
+            // the name is spelled as in the most recent game, and nothing is inserted if there are no games left
+            String sql = "insert into " + TABLE_PLAYERS + " (" + COLUMN_PLAYER_KEY + "," + COLUMN_NAME + ","
+                    + COLUMN_USAGE_COUNT + "," + COLUMN_LAST_USED + ") select " + COLUMN_PLAYER_KEY + ","
+                    + COLUMN_NAME + ",(select count(*) from " + TABLE_PLAYER_GAME_STATS + " where "
+                    + COLUMN_PLAYER_KEY + "=?1)," + COLUMN_DATE_STARTED + " from " + TABLE_PLAYER_GAME_STATS
+                    + " where " + COLUMN_PLAYER_KEY + "=?1 order by " + COLUMN_DATE_STARTED + " desc, rowid desc"
+                    + " limit 1";
+            return db.compileStatement(sql);
+        }
+    };
+
     private SQLiteDatabase db;
 
     public GameDBHelper(Context context) {
@@ -85,7 +250,9 @@ public class GameDBHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         String createSql1 = "create table if not exists " + TABLE_GAMES + " (" + COLUMN_ID
                 + " integer not null primary key autoincrement, " + COLUMN_NAME + " text, " + COLUMN_AUTOSAVED
-                + " int not null, " + COLUMN_DATE_STARTED + " int not null, " + COLUMN_DATE_SAVED + " int not null);";
+                + " int not null, " + COLUMN_DATE_STARTED + " int not null, " + COLUMN_DATE_SAVED + " int not null, "
+                + COLUMN_EVENT_SEQUENCE + " int not null default 0, " 
+                + COLUMN_SNAPSHOT_SEQUENCE + " int not null default 0);";
 
         db.execSQL(createSql1);
 
@@ -102,6 +269,106 @@ public class GameDBHelper extends SQLiteOpenHelper {
 
         db.execSQL(indexSql1);
 
+        createGameEventsTable(db);
+        createGameSearchTable(db);
+        createPlayerStatsTables(db);
+        createPlayerRatingsTables(db);
+        createPlayersTable(db);
+        createPlayerStatsRebuildTable(db);
+    }
+    
+    private void createGameEventsTable(SQLiteDatabase db) {
+        String createSql = "create table if not exists " + TABLE_GAME_EVENTS + " (" + COLUMN_GAME_ID
+                + " int not null, " + COLUMN_SEQUENCE + " int not null, " + COLUMN_PLAYER_NUMBER + " int not null, "
+                + COLUMN_TYPE + " text not null, " + COLUMN_VALUE + " int not null);";
+
+        db.execSQL(createSql);
+
+        String indexSql = "create unique index if not exists index_game_events on " + TABLE_GAME_EVENTS + " ("
+                + COLUMN_GAME_ID + "," + COLUMN_SEQUENCE + ");";
+
+        db.execSQL(indexSql);
+    }
+
+    /**
+     * Full-text index of the game name and player names, one row per game, where the docid is the game id.
+     */
+    private void createGameSearchTable(SQLiteDatabase db) {
+        db.execSQL("create virtual table if not exists " + TABLE_GAME_SEARCH + " using fts3(" + COLUMN_NAMES + ");");
+    }
+
+    /**
+     * Per-player statistics across all games:  what each named player contributed in each game, plus their running
+     * totals, so that the totals can be kept up to date as games are saved and deleted.
+     */
+    private void createPlayerStatsTables(SQLiteDatabase db) {
+        db.execSQL("create table if not exists " + TABLE_PLAYER_GAME_STATS + " (" + COLUMN_GAME_ID + " int not null, "
+                + COLUMN_PLAYER_KEY + " text not null, " + COLUMN_NAME + " text not null, " + COLUMN_SCORE
+                + " int not null, " + COLUMN_ROUNDS + " int not null, " + COLUMN_WON + " int not null, "
+                + COLUMN_DATE_STARTED + " int not null);");
+
+        db.execSQL("create index if not exists index_player_game_stats_game_id on " + TABLE_PLAYER_GAME_STATS + " ("
+                + COLUMN_GAME_ID + ");");
+
+        // also makes it cheap to find a player's best score
+        db.execSQL("create index if not exists index_player_game_stats_score on " + TABLE_PLAYER_GAME_STATS + " ("
+                + COLUMN_PLAYER_KEY + "," + COLUMN_SCORE + ");");
+
+        db.execSQL("create table if not exists " + TABLE_PLAYER_STATS + " (" + COLUMN_PLAYER_KEY
+                + " text not null primary key, " + COLUMN_NAME + " text not null, " + COLUMN_GAMES_PLAYED
+                + " int not null, " + COLUMN_WINS + " int not null, " + COLUMN_TOTAL_SCORE + " int not null, "
+                + COLUMN_BEST_SCORE + " int, " + COLUMN_TOTAL_ROUNDS + " int not null);");
+    }
+
+    /**
+     * One-row table that's only filled in if the player statistics still have to be worked out from the existing
+     * games.
+     */
+    private void createPlayerStatsRebuildTable(SQLiteDatabase db) {
+        db.execSQL("create table if not exists " + TABLE_PLAYER_STATS_REBUILD + " (" + COLUMN_ID
+                + " integer not null primary key);");
+    }
+
+    /**
+     * Player ratings as of every game, in the order the games were played, which serve as checkpoints so that only
+     * the games after a change have to be replayed.  The earliest game that's changed since the ratings were last
+     * worked out (if any) is kept in a one-row table.
+     */
+    private void createPlayerRatingsTables(SQLiteDatabase db) {
+        db.execSQL("create table if not exists " + TABLE_PLAYER_RATINGS + " (" + COLUMN_GAME_ID + " int not null, "
+                + COLUMN_PLAYER_KEY + " text not null, " + COLUMN_DATE_STARTED + " int not null, " + COLUMN_RATING
+                + " real not null);");
+
+        db.execSQL("create index if not exists index_player_ratings_player_key on " + TABLE_PLAYER_RATINGS + " ("
+                + COLUMN_PLAYER_KEY + "," + COLUMN_DATE_STARTED + "," + COLUMN_GAME_ID + ");");
+
+        db.execSQL("create index if not exists index_player_ratings_date_started on " + TABLE_PLAYER_RATINGS + " ("
+                + COLUMN_DATE_STARTED + "," + COLUMN_GAME_ID + ");");
+
+        // games are replayed in order from here
+        db.execSQL("create index if not exists index_player_game_stats_date_started on " + TABLE_PLAYER_GAME_STATS
+                + " (" + COLUMN_DATE_STARTED + "," + COLUMN_GAME_ID + ");");
+
+        db.execSQL("create table if not exists " + TABLE_RATING_REPLAY + " (" + COLUMN_DATE_STARTED + " int not null, "
+                + COLUMN_GAME_ID + " int not null);");
+
+        // each player's current rating
+        db.execSQL("alter table " + TABLE_PLAYER_STATS + " add column " + COLUMN_RATING + " real not null default "
+                + RatingEngine.INITIAL_RATING);
+    }
+
+    /**
+     * Every named player, with how many games they've played and when they last played, for suggesting names.
+     */
+    private void createPlayersTable(SQLiteDatabase db) {
+        // the primary key also serves prefix queries, since the keys are already lower case
+        db.execSQL("create table if not exists " + TABLE_PLAYERS + " (" + COLUMN_PLAYER_KEY
+                + " text not null primary key, " + COLUMN_NAME + " text not null, " + COLUMN_USAGE_COUNT
+                + " int not null, " + COLUMN_LAST_USED + " int not null);");
+
+        // makes it cheap to find a player's most recent game, or all of their games in order
+        db.execSQL("create index if not exists index_player_game_stats_player_key on " + TABLE_PLAYER_GAME_STATS
+                + " (" + COLUMN_PLAYER_KEY + "," + COLUMN_DATE_STARTED + ");");
     }
 
     @Override
@@ -123,6 +390,37 @@ public class GameDBHelper extends SQLiteOpenHelper {
             db.execSQL(addColumn);
         }
         
+        if (oldVersion <= 3) {
+            // store games as a snapshot plus the changes recorded since then
+            db.execSQL("alter table " + TABLE_GAMES + " add column " + COLUMN_EVENT_SEQUENCE 
+                    + " int not null default 0");
+            db.execSQL("alter table " + TABLE_GAMES + " add column " + COLUMN_SNAPSHOT_SEQUENCE 
+                    + " int not null default 0");
+            createGameEventsTable(db);
+            
+            // index the names of existing games for searching
+            createGameSearchTable(db);
+            db.execSQL("insert into " + TABLE_GAME_SEARCH + " (" + COLUMN_DOCID + "," + COLUMN_NAMES + ") select g."
+                    + COLUMN_ID + ", ifnull(g." + COLUMN_NAME + ",'') || ' ' || ifnull(group_concat(ps." + COLUMN_NAME
+                    + ",' '),'') from " + TABLE_GAMES + " g left join " + TABLE_PLAYER_SCORES + " ps on g."
+                    + COLUMN_ID + "=ps." + COLUMN_GAME_ID + " group by g." + COLUMN_ID);
+            
+            // the statistics and the directory of players need every game's current scores, so they're filled in
+            // the next time they're read, which is off the UI thread
+            createPlayerStatsTables(db);
+            createPlayerRatingsTables(db);
+            createPlayersTable(db);
+            createPlayerStatsRebuildTable(db);
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_ID, 1);
+            db.insert(TABLE_PLAYER_STATS_REBUILD, null, values);
+            
+            // and all the existing games are rated after that
+            values = new ContentValues();
+            values.put(COLUMN_DATE_STARTED, Long.MIN_VALUE);
+            values.put(COLUMN_GAME_ID, Integer.MIN_VALUE);
+            db.insert(TABLE_RATING_REPLAY, null, values);
+        }
     }
 
     /**
@@ -154,6 +452,7 @@ public class GameDBHelper extends SQLiteOpenHelper {
                 String where = "g." + COLUMN_ID + "=" + gameId;
                 cursor = db.query(JOINED_TABLES, JOINED_COLUMNS, where, null, null, null, null);
                 List<Game> result = convertToGames(cursor);
+                replayPendingEvents(result, where);
 
                 return result.isEmpty() ? null : result.get(0);
             } finally {
@@ -212,6 +511,9 @@ public class GameDBHelper extends SQLiteOpenHelper {
 
                 cursor = db.rawQuery(sql, null);
                 List<Game> result = convertToGames(cursor);
+                if (!result.isEmpty()) {
+                    replayPendingEvents(result, "g." + COLUMN_ID + "=" + result.get(0).getId());
+                }
 
                 return result.isEmpty() ? null : result.get(0);
             } finally {
@@ -243,22 +545,238 @@ public class GameDBHelper extends SQLiteOpenHelper {
             db.beginTransaction();
             try {
                 saveGameWithinTransaction(game, updateDateSaved);
+                updatePlayerStats(game);
+                // without the event log, there's no way to know if later events are still valid for redoing
+                db.delete(TABLE_GAME_EVENTS, COLUMN_GAME_ID + "=" + game.getId() + " and " + COLUMN_SEQUENCE + ">"
+                        + game.getEventSequence(), null);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                GameCache.invalidate(game.getId());
+            }
+        }
+    }
+
+    /**
+     * save the changes recorded in the game's event log since it was last saved, and update its 'dateSaved' value.
+     * The whole game is only written out if it's new, or if enough changes have piled up since the last snapshot.
+     * 
+     * @param eventLog
+     */
+    public void saveGame(GameEventLog eventLog) {
+        synchronized (GameDBHelper.class) {
+            // only the copy is saved, so the log isn't locked (and the UI isn't blocked) while the transaction runs
+            PendingSave pendingSave = eventLog.prepareSave();
+            Game game = pendingSave.getGame();
+            boolean newGame = game.getId() == -1;
+            if (!newGame && !gameExists(game.getId())) {
+                // deleted while this save was waiting, e.g. when the players were changed
+                log.w("not saving events for deleted game %s", game.getId());
+                return;
+            }
+            db.beginTransaction();
+            try {
+                if (newGame) {
+                    saveGameWithinTransaction(game, true);
+                    pendingSave.setSnapshotWritten(true);
+                }
+
+                saveEventsWithinTransaction(game.getId(), pendingSave);
+
+                if (!newGame) {
+                    int eventsSinceSnapshot = Math.abs(game.getEventSequence() - game.getSnapshotSequence());
+                    if (pendingSave.isSnapshotRequired() || eventsSinceSnapshot >= SNAPSHOT_INTERVAL) {
+                        saveGameWithinTransaction(game, true);
+                        pendingSave.setSnapshotWritten(true);
+                        deleteOldEventsWithinTransaction(game.getId(), game.getSnapshotSequence(),
+                                eventLog.getCapacity());
+                    } else {
+                        game.setDateSaved(System.currentTimeMillis());
+                        updateGameEventSequence(game.getId(), game.getDateSaved(), game.getEventSequence());
+                    }
+                }
+                updatePlayerStats(game);
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
+                GameCache.invalidate(game.getId());
+            }
+            eventLog.markPersisted(pendingSave);
+        }
+    }
+
+    /**
+     * Load the game's most recent events, so that they can be undone or redone.
+     * 
+     * @param game
+     * @param capacity
+     * @return
+     */
+    public GameEventLog findEventLog(Game game, int capacity) {
+        synchronized (GameDBHelper.class) {
+            int minSequence = Math.max(1, game.getEventSequence() - capacity + 1);
+            List<RecordedChange> changes = new ArrayList<RecordedChange>();
+            int firstSequence = -1;
+            Cursor cursor = null;
+            try {
+                String[] columns = { COLUMN_SEQUENCE, COLUMN_PLAYER_NUMBER, COLUMN_TYPE, COLUMN_VALUE };
+                String where = COLUMN_GAME_ID + "=" + game.getId() + " and " + COLUMN_SEQUENCE + ">=" + minSequence;
+                cursor = db.query(TABLE_GAME_EVENTS, columns, where, null, null, null, COLUMN_SEQUENCE);
+                while (cursor.moveToNext()) {
+                    int sequence = cursor.getInt(0);
+                    if (firstSequence == -1) {
+                        firstSequence = sequence;
+                    } else if (sequence != firstSequence + changes.size()) {
+                        break; // not contiguous
+                    }
+                    changes.add(convertToRecordedChange(cursor, 1));
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            int lastSequence = firstSequence + changes.size() - 1;
+            if (changes.isEmpty() || firstSequence > game.getEventSequence() + 1 
+                    || lastSequence < game.getEventSequence()) {
+                // nothing to undo or redo
+                return new GameEventLog(game, capacity);
             }
+            return new GameEventLog(game, capacity, firstSequence, changes);
+        }
+    }
+
+    private void saveEventsWithinTransaction(int gameId, PendingSave pendingSave) {
+
+        int sequence = pendingSave.getFirstUnpersistedSequence();
+
+        // anything stored after this point was undone and then overwritten
+        db.delete(TABLE_GAME_EVENTS, COLUMN_GAME_ID + "=" + gameId + " and " + COLUMN_SEQUENCE + ">=" + sequence, 
+                null);
+
+        SQLiteStatement statement = insertGameEvent.get();
+        for (RecordedChange change : pendingSave.getUnpersistedChanges()) {
+            statement.bindLong(1, gameId);
+            statement.bindLong(2, sequence++);
+            statement.bindLong(3, change.getPlayerNumber());
+            statement.bindString(4, change.getType().name());
+            statement.bindLong(5, change.getValue());
+            statement.executeInsert();
         }
     }
 
+    /**
+     * Delete the events that are already in the snapshot and too old to be loaded back into the event log, since
+     * they can never be undone or replayed again.
+     * 
+     * @param gameId
+     * @param snapshotSequence
+     * @param capacity
+     *            the capacity of the event log, i.e. how many events before the snapshot are still needed
+     */
+    private void deleteOldEventsWithinTransaction(int gameId, int snapshotSequence, int capacity) {
+        db.delete(TABLE_GAME_EVENTS, COLUMN_GAME_ID + "=" + gameId + " and " + COLUMN_SEQUENCE + "<="
+                + (snapshotSequence - capacity), null);
+    }
+
+    /**
+     * Bring games loaded from their snapshots up to date, by replaying (or reverting) the events recorded between the
+     * snapshot and the game's current event sequence.
+     * 
+     * @param games
+     * @param where
+     *            extra condition on the games table, or null for all games
+     */
+    private void replayPendingEvents(List<Game> games, String where) {
+
+        if (games.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<RecordedChange>> pendingEvents = new HashMap<Integer, List<RecordedChange>>();
+
+        Cursor cursor = null;
+        try {
+            StringBuilder sql = new StringBuilder("select e.").append(COLUMN_GAME_ID)
+                    .append(", e.").append(COLUMN_PLAYER_NUMBER)
+                    .append(", e.").append(COLUMN_TYPE)
+                    .append(", e.").append(COLUMN_VALUE)
+                    .append(" from ").append(TABLE_GAME_EVENTS).append(" e join ").append(TABLE_GAMES)
+                    .append(" g on e.").append(COLUMN_GAME_ID).append("=g.").append(COLUMN_ID)
+                    .append(" where g.").append(COLUMN_EVENT_SEQUENCE).append("!=g.").append(COLUMN_SNAPSHOT_SEQUENCE)
+                    .append(" and e.").append(COLUMN_SEQUENCE).append(">min(g.").append(COLUMN_EVENT_SEQUENCE)
+                    .append(",g.").append(COLUMN_SNAPSHOT_SEQUENCE).append(")")
+                    .append(" and e.").append(COLUMN_SEQUENCE).append("<=max(g.").append(COLUMN_EVENT_SEQUENCE)
+                    .append(",g.").append(COLUMN_SNAPSHOT_SEQUENCE).append(")");
+            if (where != null) {
+                sql.append(" and ").append(where);
+            }
+            sql.append(" order by e.").append(COLUMN_GAME_ID).append(", e.").append(COLUMN_SEQUENCE);
+
+            cursor = db.rawQuery(sql.toString(), null);
+
+            while (cursor.moveToNext()) {
+                int gameId = cursor.getInt(0);
+                List<RecordedChange> changes = pendingEvents.get(gameId);
+                if (changes == null) {
+                    changes = new ArrayList<RecordedChange>();
+                    pendingEvents.put(gameId, changes);
+                }
+                changes.add(convertToRecordedChange(cursor, 1));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+
+        for (Game game : games) {
+            List<RecordedChange> changes = pendingEvents.get(game.getId());
+            if (changes == null) {
+                continue;
+            }
+            List<PlayerScore> playerScores = game.getPlayerScores();
+            if (game.getEventSequence() > game.getSnapshotSequence()) {
+                // play forwards from the snapshot
+                for (RecordedChange change : changes) {
+                    if (change.getPlayerNumber() < playerScores.size()) {
+                        change.applyTo(playerScores.get(change.getPlayerNumber()));
+                    }
+                }
+            } else {
+                // the last changes before the snapshot were undone, so play backwards
+                for (int i = changes.size() - 1; i >= 0; i--) {
+                    RecordedChange change = changes.get(i);
+                    if (change.getPlayerNumber() < playerScores.size()) {
+                        change.revertFrom(playerScores.get(change.getPlayerNumber()));
+                    }
+                }
+            }
+        }
+    }
+
+    private RecordedChange convertToRecordedChange(Cursor cursor, int startIndex) {
+        return new RecordedChange(cursor.getInt(startIndex), RecordedChange.Type.valueOf(cursor
+                .getString(startIndex + 1)), cursor.getInt(startIndex + 2));
+    }
+
     private void saveGameWithinTransaction(Game game, boolean updateDateSaved) {
 
         long dateSaved = updateDateSaved ? System.currentTimeMillis() : game.getDateSaved();
         game.setDateSaved(dateSaved);
+        
+        // the player scores are written out in full, so any events up to this point needn't be replayed
+        game.setSnapshotSequence(game.getEventSequence());
 
         if (game.getId() != -1) {
             // game was already saved, so try to overwrite
 
-            updateGame(game.getId(), game.getDateStarted(), game.getDateSaved(), game.getName());
+            updateGame(game.getId(), game.getDateStarted(), game.getDateSaved(), game.getName(),
+                    game.getEventSequence(), game.getSnapshotSequence());
         } else {
             // else create a new row in the table
 
@@ -272,6 +790,8 @@ public class GameDBHelper extends SQLiteOpenHelper {
             contentValues.put(COLUMN_ID, newGameId);
             contentValues.put(COLUMN_AUTOSAVED, 1); // legacy "autosaved" column
                                                     // that must be specified
+            contentValues.put(COLUMN_EVENT_SEQUENCE, game.getEventSequence());
+            contentValues.put(COLUMN_SNAPSHOT_SEQUENCE, game.getSnapshotSequence());
 
             db.insert(TABLE_GAMES, null, contentValues);
 
@@ -280,7 +800,441 @@ public class GameDBHelper extends SQLiteOpenHelper {
         }
 
         savePlayerScores(game.getId(), game.getPlayerScores());
+        updateSearchIndex(game.getId(), game.getName(), game.getPlayerScores());
+
+    }
+
+    private void updateSearchIndex(int gameId, String gameName, List<PlayerScore> playerScores) {
+        StringBuilder names = new StringBuilder();
+        if (gameName != null) {
+            names.append(gameName);
+        }
+        for (PlayerScore playerScore : playerScores) {
+            if (playerScore.getName() != null) {
+                names.append(' ').append(playerScore.getName());
+            }
+        }
+
+        db.delete(TABLE_GAME_SEARCH, COLUMN_DOCID + "=" + gameId, null);
 
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DOCID, gameId);
+        values.put(COLUMN_NAMES, names.toString());
+        db.insert(TABLE_GAME_SEARCH, null, values);
+    }
+
+    /**
+     * Keep the player statistics in step with the game, by taking out whatever it contributed the last time it was
+     * saved and adding in what it contributes now.  Usually nothing has changed, e.g. when only an unnamed player's
+     * score was updated, in which case nothing is written.
+     */
+    private void updatePlayerStats(Game game) {
+        String where = COLUMN_GAME_ID + "=" + game.getId();
+        List<PlayerGameStats> oldStats = findPlayerGameStats(where);
+        List<PlayerGameStats> newStats = PlayerGameStats.fromGame(game);
+        if (newStats.equals(oldStats)) {
+            return;
+        }
+
+        removePlayerGameStats(where, oldStats);
+        if (!newStats.isEmpty()) {
+            markRatingsForReplay(game.getDateStarted(), game.getId());
+        }
+
+        SQLiteStatement insertStatement = insertPlayerGameStats.get();
+        SQLiteStatement insertTotalsStatement = insertPlayerStats.get();
+        SQLiteStatement addStatement = addToPlayerStats.get();
+        for (PlayerGameStats stats : newStats) {
+            insertStatement.bindLong(1, game.getId());
+            insertStatement.bindString(2, stats.getPlayerKey());
+            insertStatement.bindString(3, stats.getName());
+            insertStatement.bindLong(4, stats.getScore());
+            insertStatement.bindLong(5, stats.getRounds());
+            insertStatement.bindLong(6, stats.isWon() ? 1 : 0);
+            insertStatement.bindLong(7, stats.getDateStarted());
+            insertStatement.executeInsert();
+
+            insertTotalsStatement.bindString(1, stats.getPlayerKey());
+            insertTotalsStatement.bindString(2, stats.getName());
+            insertTotalsStatement.executeInsert();
+
+            addStatement.bindString(1, stats.getName());
+            addStatement.bindLong(2, stats.isWon() ? 1 : 0);
+            addStatement.bindLong(3, stats.getScore());
+            addStatement.bindLong(4, stats.getRounds());
+            addStatement.bindLong(5, stats.getScore());
+            addStatement.bindLong(6, stats.getScore());
+            addStatement.bindString(7, stats.getPlayerKey());
+            addStatement.execute();
+        }
+
+        // most saves only change the scores, which the players directory doesn't care about
+        if (!isSamePlayers(oldStats, newStats)) {
+            List<PlayerGameStats> changedStats = new ArrayList<PlayerGameStats>(oldStats);
+            changedStats.addAll(newStats);
+            updatePlayers(changedStats);
+        }
+    }
+
+    private static boolean isSamePlayers(List<PlayerGameStats> stats, List<PlayerGameStats> otherStats) {
+        if (stats.size() != otherStats.size()) {
+            return false;
+        }
+        for (int i = 0; i < stats.size(); i++) {
+            PlayerGameStats playerStats = stats.get(i);
+            PlayerGameStats otherPlayerStats = otherStats.get(i);
+            if (!playerStats.getPlayerKey().equals(otherPlayerStats.getPlayerKey())
+                    || !playerStats.getName().equals(otherPlayerStats.getName())
+                    || playerStats.getDateStarted() != otherPlayerStats.getDateStarted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Work out the players directory entries again for the players in the given statistics, from the games they're
+     * still in.
+     * 
+     * @param stats
+     */
+    private void updatePlayers(List<PlayerGameStats> stats) {
+        SQLiteStatement deleteStatement = deletePlayer.get();
+        SQLiteStatement insertStatement = insertPlayer.get();
+        Set<String> playerKeys = new HashSet<String>();
+        for (PlayerGameStats playerStats : stats) {
+            if (!playerKeys.add(playerStats.getPlayerKey())) {
+                continue;
+            }
+            deleteStatement.bindString(1, playerStats.getPlayerKey());
+            deleteStatement.execute();
+            insertStatement.bindString(1, playerStats.getPlayerKey());
+            insertStatement.execute();
+        }
+    }
+
+    /**
+     * Delete the per-game statistics matching the where clause, and take them out of the players' totals.
+     * 
+     * @param where
+     * @param oldStats
+     *            the statistics currently stored for that where clause
+     */
+    private void removePlayerGameStats(String where, List<PlayerGameStats> oldStats) {
+        if (oldStats.isEmpty()) {
+            return;
+        }
+        markRatingsForReplay(where);
+        db.delete(TABLE_PLAYER_GAME_STATS, where, null);
+
+        // add up what's being taken out for each player, so each player's totals are only updated once
+        Map<String, PlayerStats> removedTotals = new HashMap<String, PlayerStats>();
+        for (PlayerGameStats stats : oldStats) {
+            PlayerStats removed = removedTotals.get(stats.getPlayerKey());
+            if (removed == null) {
+                removed = new PlayerStats();
+                removed.setBestScore(stats.getScore());
+                removedTotals.put(stats.getPlayerKey(), removed);
+            }
+            removed.setGamesPlayed(removed.getGamesPlayed() + 1);
+            removed.setWins(removed.getWins() + (stats.isWon() ? 1 : 0));
+            removed.setTotalScore(removed.getTotalScore() + stats.getScore());
+            removed.setTotalRounds(removed.getTotalRounds() + stats.getRounds());
+            removed.setBestScore(Math.max(removed.getBestScore(), stats.getScore()));
+        }
+
+        SQLiteStatement subtractStatement = subtractFromPlayerStats.get();
+        SQLiteStatement deleteStatement = deleteEmptyPlayerStats.get();
+        for (Map.Entry<String, PlayerStats> entry : removedTotals.entrySet()) {
+            PlayerStats removed = entry.getValue();
+            subtractStatement.bindLong(1, removed.getGamesPlayed());
+            subtractStatement.bindLong(2, removed.getWins());
+            subtractStatement.bindLong(3, removed.getTotalScore());
+            subtractStatement.bindLong(4, removed.getTotalRounds());
+            subtractStatement.bindLong(5, removed.getBestScore());
+            subtractStatement.bindString(6, entry.getKey());
+            subtractStatement.bindString(7, entry.getKey());
+            subtractStatement.execute();
+
+            deleteStatement.bindString(1, entry.getKey());
+            deleteStatement.execute();
+        }
+    }
+
+    /**
+     * Note that the ratings have to be worked out again from the earliest of the games matching the where clause.
+     */
+    private void markRatingsForReplay(String where) {
+        Cursor cursor = null;
+        try {
+            String[] columns = { COLUMN_DATE_STARTED, COLUMN_GAME_ID };
+            String orderBy = COLUMN_DATE_STARTED + "," + COLUMN_GAME_ID;
+            cursor = db.query(TABLE_PLAYER_GAME_STATS, columns, where, null, null, null, orderBy, "1");
+            if (cursor.moveToNext()) {
+                markRatingsForReplay(cursor.getLong(0), cursor.getInt(1));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Note that the ratings have to be worked out again from this game onwards, unless they already have to be
+     * worked out from an earlier game.
+     */
+    private void markRatingsForReplay(long dateStarted, int gameId) {
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_RATING_REPLAY, new String[] { COLUMN_DATE_STARTED, COLUMN_GAME_ID }, null, null,
+                    null, null, null);
+            if (cursor.moveToNext() && isBefore(cursor.getLong(0), cursor.getInt(1), dateStarted, gameId)) {
+                return;
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        db.delete(TABLE_RATING_REPLAY, null, null);
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DATE_STARTED, dateStarted);
+        values.put(COLUMN_GAME_ID, gameId);
+        db.insert(TABLE_RATING_REPLAY, null, values);
+    }
+
+    /**
+     * Games are rated in the order they were started, with the id as a tie-breaker.
+     */
+    private static boolean isBefore(long dateStarted, int gameId, long otherDateStarted, int otherGameId) {
+        return dateStarted < otherDateStarted || (dateStarted == otherDateStarted && gameId <= otherGameId);
+    }
+
+    /**
+     * Bring the ratings up to date, by replaying the games from the earliest one that's been saved or deleted since
+     * the ratings were last worked out.  The ratings as of the games before that point are kept as they are.
+     */
+    private void replayRatingsIfNeeded() {
+        long fromDateStarted;
+        int fromGameId;
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_RATING_REPLAY, new String[] { COLUMN_DATE_STARTED, COLUMN_GAME_ID }, null, null,
+                    null, null, null);
+            if (!cursor.moveToNext()) {
+                return; // already up to date
+            }
+            fromDateStarted = cursor.getLong(0);
+            fromGameId = cursor.getInt(1);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        String fromWhere = "(" + COLUMN_DATE_STARTED + ">" + fromDateStarted + " or (" + COLUMN_DATE_STARTED + "="
+                + fromDateStarted + " and " + COLUMN_GAME_ID + ">=" + fromGameId + "))";
+        String orderBy = COLUMN_DATE_STARTED + "," + COLUMN_GAME_ID;
+
+        db.beginTransaction();
+        try {
+            RatingEngine ratingEngine = new RatingEngine();
+
+            // players who are only in the deleted games still need their ratings to go back to what they were
+            List<String> playerKeys = new ArrayList<String>();
+            cursor = db.query(true, TABLE_PLAYER_RATINGS, new String[] { COLUMN_PLAYER_KEY }, fromWhere, null, null,
+                    null, null, null);
+            while (cursor.moveToNext()) {
+                playerKeys.add(cursor.getString(0));
+            }
+            cursor.close();
+
+            db.delete(TABLE_PLAYER_RATINGS, fromWhere, null);
+            for (String playerKey : playerKeys) {
+                ratingEngine.setRating(playerKey, findLatestRating(playerKey));
+            }
+
+            SQLiteStatement insertStatement = insertPlayerRating.get();
+            String[] columns = { COLUMN_GAME_ID, COLUMN_DATE_STARTED, COLUMN_PLAYER_KEY, COLUMN_SCORE };
+            cursor = db.query(TABLE_PLAYER_GAME_STATS, columns, fromWhere, null, null, null, orderBy + ",rowid");
+            int numGames = 0;
+            List<PlayerGameStats> gameStats = new ArrayList<PlayerGameStats>();
+            while (cursor.moveToNext()) {
+                int gameId = cursor.getInt(0);
+                long dateStarted = cursor.getLong(1);
+
+                // gather up all the players in the game
+                gameStats.clear();
+                do {
+                    if (cursor.getInt(0) != gameId) {
+                        cursor.moveToPrevious(); // went too far
+                        break;
+                    }
+                    PlayerGameStats stats = new PlayerGameStats();
+                    stats.setPlayerKey(cursor.getString(2));
+                    stats.setScore(cursor.getLong(3));
+                    gameStats.add(stats);
+
+                    if (!ratingEngine.hasRating(stats.getPlayerKey())) {
+                        ratingEngine.setRating(stats.getPlayerKey(), findLatestRating(stats.getPlayerKey()));
+                    }
+                } while (cursor.moveToNext());
+
+                ratingEngine.rateGame(gameStats);
+                numGames++;
+
+                for (PlayerGameStats stats : gameStats) {
+                    insertStatement.bindLong(1, gameId);
+                    insertStatement.bindString(2, stats.getPlayerKey());
+                    insertStatement.bindLong(3, dateStarted);
+                    insertStatement.bindDouble(4, ratingEngine.getRating(stats.getPlayerKey()));
+                    insertStatement.executeInsert();
+                }
+            }
+            cursor.close();
+
+            ContentValues values = new ContentValues();
+            for (Map.Entry<String, Double> entry : ratingEngine.getRatings().entrySet()) {
+                values.put(COLUMN_RATING, entry.getValue());
+                db.update(TABLE_PLAYER_STATS, values, COLUMN_PLAYER_KEY + "=?", new String[] { entry.getKey() });
+            }
+
+            db.delete(TABLE_RATING_REPLAY, null, null);
+            db.setTransactionSuccessful();
+            log.d("replayed ratings for %s games", numGames);
+        } finally {
+            db.endTransaction();
+            if (cursor != null && !cursor.isClosed()) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * @return the player's rating as of the last game in the ratings table, or the initial rating if there isn't one
+     */
+    private double findLatestRating(String playerKey) {
+        Cursor cursor = null;
+        try {
+            String orderBy = COLUMN_DATE_STARTED + " desc," + COLUMN_GAME_ID + " desc";
+            cursor = db.query(TABLE_PLAYER_RATINGS, new String[] { COLUMN_RATING }, COLUMN_PLAYER_KEY + "=?",
+                    new String[] { playerKey }, null, null, orderBy, "1");
+            return cursor.moveToNext() ? cursor.getDouble(0) : RatingEngine.INITIAL_RATING;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private List<PlayerGameStats> findPlayerGameStats(String where) {
+        List<PlayerGameStats> result = new ArrayList<PlayerGameStats>();
+        Cursor cursor = null;
+        try {
+            String[] columns = { COLUMN_PLAYER_KEY, COLUMN_NAME, COLUMN_SCORE, COLUMN_ROUNDS, COLUMN_WON,
+                    COLUMN_DATE_STARTED };
+            // same order they were inserted in, i.e. by player number
+            cursor = db.query(TABLE_PLAYER_GAME_STATS, columns, where, null, null, null, "rowid");
+            while (cursor.moveToNext()) {
+                PlayerGameStats stats = new PlayerGameStats();
+                stats.setPlayerKey(cursor.getString(0));
+                stats.setName(cursor.getString(1));
+                stats.setScore(cursor.getLong(2));
+                stats.setRounds(cursor.getInt(3));
+                stats.setWon(cursor.getInt(4) != 0);
+                stats.setDateStarted(cursor.getLong(5));
+                result.add(stats);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Work out the player statistics from scratch, from every saved game, if the database was upgraded from a version
+     * without them.  This reads every game, so it's left to the methods that read the statistics (which are only
+     * called off the UI thread) rather than done in the constructor, which runs on whatever thread first opens the
+     * database.
+     */
+    private void rebuildPlayerStatsIfNeeded() {
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_PLAYER_STATS_REBUILD, new String[] { COLUMN_ID }, null, null, null, null, null);
+            if (!cursor.moveToNext()) {
+                return; // already up to date
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        rebuildPlayerStats();
+    }
+
+    /**
+     * Work out the player statistics from scratch, from every saved game.
+     */
+    private void rebuildPlayerStats() {
+        synchronized (GameDBHelper.class) {
+            List<Game> games = findAllGames();
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_PLAYER_GAME_STATS, null, null);
+                db.delete(TABLE_PLAYER_STATS, null, null);
+                db.delete(TABLE_PLAYERS, null, null);
+                for (Game game : games) {
+                    updatePlayerStats(game);
+                }
+                db.delete(TABLE_PLAYER_STATS_REBUILD, null, null);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            log.i("rebuilt player stats for %s games", games.size());
+        }
+    }
+
+    /**
+     * Find every named player's totals and rating across all the saved games, highest rated first.  The ratings are
+     * brought up to date first, if any games have changed.
+     * 
+     * @return
+     */
+    public List<PlayerStats> findAllPlayerStats() {
+        synchronized (GameDBHelper.class) {
+            rebuildPlayerStatsIfNeeded();
+            replayRatingsIfNeeded();
+            
+            List<PlayerStats> result = new ArrayList<PlayerStats>();
+            Cursor cursor = null;
+            try {
+                String[] columns = { COLUMN_NAME, COLUMN_GAMES_PLAYED, COLUMN_WINS, COLUMN_TOTAL_SCORE,
+                        COLUMN_BEST_SCORE, COLUMN_TOTAL_ROUNDS, COLUMN_RATING };
+                String orderBy = COLUMN_RATING + " desc, " + COLUMN_GAMES_PLAYED + " desc, " + COLUMN_NAME
+                        + " collate nocase";
+                cursor = db.query(TABLE_PLAYER_STATS, columns, null, null, null, null, orderBy);
+                while (cursor.moveToNext()) {
+                    PlayerStats stats = new PlayerStats();
+                    stats.setName(cursor.getString(0));
+                    stats.setGamesPlayed(cursor.getInt(1));
+                    stats.setWins(cursor.getInt(2));
+                    stats.setTotalScore(cursor.getLong(3));
+                    stats.setBestScore(cursor.getLong(4));
+                    stats.setTotalRounds(cursor.getLong(5));
+                    stats.setRating(cursor.getDouble(6));
+                    result.add(stats);
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            return result;
+        }
     }
 
     private int getMaxPlayerScoreId() {
@@ -368,7 +1322,9 @@ public class GameDBHelper extends SQLiteOpenHelper {
 
                 cursor = db.query(JOINED_TABLES, JOINED_COLUMNS, null, null, null, null, orderBy);
 
-                return convertToGames(cursor);
+                List<Game> result = convertToGames(cursor);
+                replayPendingEvents(result, null);
+                return result;
 
             } finally {
                 if (cursor != null) {
@@ -384,32 +1340,167 @@ public class GameDBHelper extends SQLiteOpenHelper {
                 db.beginTransaction();
 
                 int id = game.getId();
+                String gameIdWhere = COLUMN_GAME_ID + "=" + id;
+                List<PlayerGameStats> oldStats = findPlayerGameStats(gameIdWhere);
+                removePlayerGameStats(gameIdWhere, oldStats);
+                updatePlayers(oldStats);
                 db.delete(TABLE_GAMES, COLUMN_ID + "=" + id, null);
                 db.delete(TABLE_PLAYER_SCORES, COLUMN_GAME_ID + "=" + id, null);
+                db.delete(TABLE_GAME_EVENTS, COLUMN_GAME_ID + "=" + id, null);
+                db.delete(TABLE_GAME_SEARCH, COLUMN_DOCID + "=" + id, null);
 
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
+                GameCache.invalidate(game.getId());
             }
         }
     }
 
     public void updateGameName(Game game, String newName) {
         synchronized (GameDBHelper.class) {
-            ContentValues values = new ContentValues();
-            values.put(COLUMN_NAME, newName);
+            try {
+                db.beginTransaction();
+
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NAME, newName);
+
+                db.update(TABLE_GAMES, values, COLUMN_ID + "=" + game.getId(), null);
+                updateSearchIndex(game.getId(), newName, game.getPlayerScores());
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                GameCache.invalidate(game.getId());
+            }
+        }
+    }
+
+    /**
+     * Find the games whose name or player names contain words starting with each of the words in the query, e.g.
+     * "bob ali" matches a game between Bob and Alice.
+     * 
+     * @param query
+     *            text typed by the user
+     * @return the matching game ids, or null if the query doesn't contain any words to search for
+     */
+    public Set<Integer> findGameIdsMatching(String query) {
+        String matchQuery = toMatchQuery(query);
+        if (matchQuery == null) {
+            return null;
+        }
+        synchronized (GameDBHelper.class) {
+            Set<Integer> result = new HashSet<Integer>();
+            Cursor cursor = null;
+            try {
+                cursor = db.query(TABLE_GAME_SEARCH, new String[] { COLUMN_DOCID }, COLUMN_NAMES + " match ?",
+                        new String[] { matchQuery }, null, null, null);
+                while (cursor.moveToNext()) {
+                    result.add(cursor.getInt(0));
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            return result;
+        }
+    }
 
-            db.update(TABLE_GAMES, values, COLUMN_ID + "=" + game.getId(), null);
+    /**
+     * Turn the user's text into an FTS prefix query, dropping any punctuation that FTS would treat as syntax.
+     */
+    private static String toMatchQuery(String query) {
+        StringBuilder result = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(word).append('*');
+                word.setLength(0);
+            }
         }
+        return result.length() > 0 ? result.toString() : null;
     }
 
-    public List<String> findDistinctPlayerNames() {
+    /**
+     * Find the player's final score and number of rounds in every saved game they played, oldest game first.  Only
+     * the per-game statistics are read, through the index on the player and the date, so this stays quick even for
+     * players with thousands of games.
+     * 
+     * @param playerName
+     *            the player's name, in any case
+     * @return
+     */
+    public List<PlayerGameStats> findPlayerGameHistory(String playerName) {
+        List<PlayerGameStats> result = new ArrayList<PlayerGameStats>();
+        String playerKey = PlayerGameStats.normalizeName(playerName);
+        if (playerKey == null) {
+            return result;
+        }
         synchronized (GameDBHelper.class) {
+            rebuildPlayerStatsIfNeeded();
+
+            Cursor cursor = null;
+            try {
+                String[] columns = { COLUMN_NAME, COLUMN_SCORE, COLUMN_ROUNDS, COLUMN_WON, COLUMN_DATE_STARTED };
+                // the rowid comes along with the index, so this doesn't need a separate sort
+                String orderBy = COLUMN_DATE_STARTED + ",rowid";
+                cursor = db.query(TABLE_PLAYER_GAME_STATS, columns, COLUMN_PLAYER_KEY + "=?",
+                        new String[] { playerKey }, null, null, orderBy);
+                while (cursor.moveToNext()) {
+                    PlayerGameStats stats = new PlayerGameStats();
+                    stats.setPlayerKey(playerKey);
+                    stats.setName(cursor.getString(0));
+                    stats.setScore(cursor.getLong(1));
+                    stats.setRounds(cursor.getInt(2));
+                    stats.setWon(cursor.getInt(3) != 0);
+                    stats.setDateStarted(cursor.getLong(4));
+                    result.add(stats);
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the names of the players whose names start with the given prefix (ignoring case), the most frequent and
+     * then the most recent players first.
+     * 
+     * @param prefix
+     *            the start of the name, or null for all the players
+     * @param limit
+     * @return
+     */
+    public List<String> findPlayerNames(CharSequence prefix, int limit) {
+        String playerKey = prefix == null ? null : PlayerGameStats.normalizeName(prefix.toString());
+        String selection = null;
+        String[] selectionArgs = null;
+        if (playerKey != null) {
+            // everything from the prefix up to (but not including) the prefix with its last character bumped
+            int lastIndex = playerKey.length() - 1;
+            String upperBound = playerKey.substring(0, lastIndex) + (char) (playerKey.charAt(lastIndex) + 1);
+            selection = COLUMN_PLAYER_KEY + ">=? and " + COLUMN_PLAYER_KEY + "<?";
+            selectionArgs = new String[] { playerKey, upperBound };
+        }
+        synchronized (GameDBHelper.class) {
+            rebuildPlayerStatsIfNeeded();
+
             List<String> result = new ArrayList<String>();
-            String[] columns = { "distinct " + COLUMN_NAME };
             Cursor cursor = null;
             try {
-                cursor = db.query(TABLE_PLAYER_SCORES, columns, null, null, null, null, null);
+                String orderBy = COLUMN_USAGE_COUNT + " desc, " + COLUMN_LAST_USED + " desc";
+                cursor = db.query(TABLE_PLAYERS, new String[] { COLUMN_NAME }, selection, selectionArgs, null, null,
+                        orderBy, Integer.toString(limit));
                 while (cursor.moveToNext()) {
                     result.add(cursor.getString(0));
                 }
@@ -422,24 +1513,33 @@ public class GameDBHelper extends SQLiteOpenHelper {
         }
     }
 
-    public void deleteGames(Collection<Game> games) {
+    /**
+     * Delete the games with the given ids, in batches so that no single statement gets too large.
+     * 
+     * @param gameIds
+     */
+    public void deleteGames(List<Integer> gameIds) {
         synchronized (GameDBHelper.class) {
             try {
                 db.beginTransaction();
-                String where = " in ("
-                        + TextUtils.join(",", CollectionUtil.transform(games, new Function<Game, Integer>() {
-
-                            @Override
-                            public Integer apply(Game obj) {
-                                return obj.getId();
-                            }
-                        })) + ")";
-                db.delete(TABLE_GAMES, COLUMN_ID + where, null);
-                db.delete(TABLE_PLAYER_SCORES, COLUMN_GAME_ID + where, null);
+                for (int i = 0; i < gameIds.size(); i += DELETE_BATCH_SIZE) {
+                    List<Integer> batch = gameIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, gameIds.size()));
+                    String where = " in (" + TextUtils.join(",", batch) + ")";
+                    List<PlayerGameStats> oldStats = findPlayerGameStats(COLUMN_GAME_ID + where);
+                    removePlayerGameStats(COLUMN_GAME_ID + where, oldStats);
+                    updatePlayers(oldStats);
+                    db.delete(TABLE_GAMES, COLUMN_ID + where, null);
+                    db.delete(TABLE_PLAYER_SCORES, COLUMN_GAME_ID + where, null);
+                    db.delete(TABLE_GAME_EVENTS, COLUMN_GAME_ID + where, null);
+                    db.delete(TABLE_GAME_SEARCH, COLUMN_DOCID + where, null);
+                }
 
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
+                for (Integer gameId : gameIds) {
+                    GameCache.invalidate(gameId);
+                }
             }
         }
     }
@@ -461,6 +1561,8 @@ public class GameDBHelper extends SQLiteOpenHelper {
                 currentGame.setDateStarted(cursor.getLong(1));
                 currentGame.setDateSaved(cursor.getLong(2));
                 currentGame.setName(cursor.getString(3));
+                currentGame.setEventSequence(cursor.getInt(10));
+                currentGame.setSnapshotSequence(cursor.getInt(11));
                 result.add(currentGame);
             }
 
@@ -503,15 +1605,38 @@ public class GameDBHelper extends SQLiteOpenHelper {
      * @param dateStarted
      * @param dateSaved
      * @param name
+     * @param eventSequence
+     * @param snapshotSequence
      * @return
      */
-    private void updateGame(int id, long dateStarted, long dateSaved, String name) {
+    private void updateGame(int id, long dateStarted, long dateSaved, String name, int eventSequence,
+            int snapshotSequence) {
         SQLiteStatement statement = updateGame.get();
 
         statement.bindLong(1, dateStarted);
         statement.bindLong(2, dateSaved);
         bindStringOrNull(statement, 3, name);
-        statement.bindLong(4, id);
+        statement.bindLong(4, eventSequence);
+        statement.bindLong(5, snapshotSequence);
+        statement.bindLong(6, id);
+
+        statement.execute();
+    }
+
+    private boolean gameExists(int id) {
+        SQLiteStatement statement = countGamesById.get();
+
+        statement.bindLong(1, id);
+
+        return statement.simpleQueryForLong() > 0;
+    }
+
+    private void updateGameEventSequence(int id, long dateSaved, int eventSequence) {
+        SQLiteStatement statement = updateGameEventSequence.get();
+
+        statement.bindLong(1, dateSaved);
+        statement.bindLong(2, eventSequence);
+        statement.bindLong(3, id);
 
         statement.execute();
     }
@@ -0,0 +1,171 @@
+package com.nolanlawson.keepscore.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.nolanlawson.keepscore.util.StringUtil;
+
+/**
+ * What a single player contributed to the cross-game player statistics in a single game.  Players are matched across
+ * games by their normalized name; unnamed players aren't counted.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerGameStats {
+
+    private String playerKey;
+    private String name;
+    private long score;
+    private int rounds;
+    private boolean won;
+    private long dateStarted;
+
+    public String getPlayerKey() {
+        return playerKey;
+    }
+
+    public void setPlayerKey(String playerKey) {
+        this.playerKey = playerKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    public void setScore(long score) {
+        this.score = score;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public void setWon(boolean won) {
+        this.won = won;
+    }
+
+    public long getDateStarted() {
+        return dateStarted;
+    }
+
+    public void setDateStarted(long dateStarted) {
+        this.dateStarted = dateStarted;
+    }
+
+    /**
+     * The key players are matched on across games, i.e. the trimmed and lower-cased name, or null if the player has
+     * no name.
+     *
+     * @param name
+     * @return
+     */
+    public static String normalizeName(String name) {
+        if (StringUtil.isEmptyOrWhitespace(name)) {
+            return null;
+        }
+        return name.trim().toLowerCase(Locale.US);
+    }
+
+    /**
+     * Work out each named player's contribution to the statistics for this game.  The players with the highest score
+     * won, unless everybody is tied (e.g. the game hasn't really started).
+     *
+     * @param game
+     * @return
+     */
+    public static List<PlayerGameStats> fromGame(Game game) {
+
+        List<PlayerScore> playerScores = game.getPlayerScores();
+
+        long maxScore = Long.MIN_VALUE;
+        long minScore = Long.MAX_VALUE;
+        for (PlayerScore playerScore : playerScores) {
+            maxScore = Math.max(maxScore, playerScore.getScore());
+            minScore = Math.min(minScore, playerScore.getScore());
+        }
+
+        List<PlayerGameStats> result = new ArrayList<PlayerGameStats>();
+        for (PlayerScore playerScore : playerScores) {
+            String playerKey = normalizeName(playerScore.getName());
+            if (playerKey == null) {
+                continue;
+            }
+            PlayerGameStats stats = new PlayerGameStats();
+            stats.setPlayerKey(playerKey);
+            stats.setName(playerScore.getName().trim());
+            stats.setScore(playerScore.getScore());
+            stats.setRounds(playerScore.getHistory() != null ? playerScore.getHistory().size() : 0);
+            stats.setWon(playerScore.getScore() == maxScore && maxScore > minScore);
+            stats.setDateStarted(game.getDateStarted());
+            result.add(stats);
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (int) (dateStarted ^ (dateStarted >>> 32));
+        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + ((playerKey == null) ? 0 : playerKey.hashCode());
+        result = prime * result + rounds;
+        result = prime * result + (int) (score ^ (score >>> 32));
+        result = prime * result + (won ? 1231 : 1237);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        PlayerGameStats other = (PlayerGameStats) obj;
+        if (dateStarted != other.dateStarted)
+            return false;
+        if (name == null) {
+            if (other.name != null)
+                return false;
+        } else if (!name.equals(other.name))
+            return false;
+        if (playerKey == null) {
+            if (other.playerKey != null)
+                return false;
+        } else if (!playerKey.equals(other.playerKey))
+            return false;
+        if (rounds != other.rounds)
+            return false;
+        if (score != other.score)
+            return false;
+        if (won != other.won)
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerGameStats [playerKey=" + playerKey + ", name=" + name + ", score=" + score + ", rounds="
+                + rounds + ", won=" + won + ", dateStarted=" + dateStarted + "]";
+    }
+}
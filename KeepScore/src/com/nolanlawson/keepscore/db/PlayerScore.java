@@ -11,8 +11,6 @@ import android.text.TextUtils;
 
 import com.nolanlawson.keepscore.R;
 import com.nolanlawson.keepscore.helper.PreferenceHelper;
-import com.nolanlawson.keepscore.util.CollectionUtil;
-import com.nolanlawson.keepscore.util.StringUtil;
 
 /**
  * Main representation for a player in a particular game and his/her score and
@@ -38,7 +36,7 @@ public class PlayerScore implements Parcelable, Cloneable {
         name = in.readString();
         score = in.readLong();
         playerNumber = in.readInt();
-        history = CollectionUtil.stringsToInts(StringUtil.split(in.readString(), ','));
+        history = readHistory(in);
         lastUpdate = in.readLong();
 
     }
@@ -154,10 +152,37 @@ public class PlayerScore implements Parcelable, Cloneable {
         dest.writeString(name);
         dest.writeLong(score);
         dest.writeInt(playerNumber);
-        dest.writeString(TextUtils.join(",", history));
+        writeHistory(dest, history);
         dest.writeLong(lastUpdate);
     }
 
+    /**
+     * Write the history as a length followed by the raw ints (the same layout as Parcel.writeIntArray()), which is
+     * much smaller and faster than formatting it as a string.
+     */
+    private static void writeHistory(Parcel dest, List<Integer> history) {
+        if (history == null) {
+            dest.writeInt(-1);
+            return;
+        }
+        dest.writeInt(history.size());
+        for (int i = 0, len = history.size(); i < len; i++) {
+            dest.writeInt(history.get(i));
+        }
+    }
+
+    private static List<Integer> readHistory(Parcel in) {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Integer> history = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            history.add(in.readInt());
+        }
+        return history;
+    }
+
     public static final Parcelable.Creator<PlayerScore> CREATOR = new Parcelable.Creator<PlayerScore>() {
         public PlayerScore createFromParcel(Parcel in) {
             return new PlayerScore(in);
@@ -0,0 +1,90 @@
+package com.nolanlawson.keepscore.db;
+
+/**
+ * A player's totals across all the saved games they've played in.
+ *
+ * @author nolan
+ *
+ */
+public class PlayerStats {
+
+    private String name;
+    private int gamesPlayed;
+    private int wins;
+    private long totalScore;
+    private long bestScore;
+    private long totalRounds;
+    private double rating;
+
+    /**
+     * @return the name as it was spelled in the most recently saved game
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public void setGamesPlayed(int gamesPlayed) {
+        this.gamesPlayed = gamesPlayed;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public void setWins(int wins) {
+        this.wins = wins;
+    }
+
+    public long getTotalScore() {
+        return totalScore;
+    }
+
+    public void setTotalScore(long totalScore) {
+        this.totalScore = totalScore;
+    }
+
+    public long getBestScore() {
+        return bestScore;
+    }
+
+    public void setBestScore(long bestScore) {
+        this.bestScore = bestScore;
+    }
+
+    public long getTotalRounds() {
+        return totalRounds;
+    }
+
+    public void setTotalRounds(long totalRounds) {
+        this.totalRounds = totalRounds;
+    }
+
+    /**
+     * @return the player's rating after all the games they've played
+     */
+    public double getRating() {
+        return rating;
+    }
+
+    public void setRating(double rating) {
+        this.rating = rating;
+    }
+
+    public double getAverageScore() {
+        return gamesPlayed == 0 ? 0 : (double) totalScore / gamesPlayed;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerStats [name=" + name + ", gamesPlayed=" + gamesPlayed + ", wins=" + wins + ", totalScore="
+                + totalScore + ", bestScore=" + bestScore + ", totalRounds=" + totalRounds + ", rating=" + rating + "]";
+    }
+}
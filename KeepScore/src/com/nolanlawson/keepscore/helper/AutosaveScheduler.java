@@ -0,0 +1,172 @@
+package com.nolanlawson.keepscore.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.nolanlawson.keepscore.util.UtilLogger;
+
+/**
+ * Decides when the game screen should autosave, based on what the user is doing rather than on a fixed timer:
+ *
+ * <ul>
+ * <li>While the user is tapping away, the save keeps getting pushed back, so a burst of input is written once.</li>
+ * <li>Once a player's delta is confirmed (i.e. the badge is folded into the history), the save happens soon after.
+ * </li>
+ * <li>During long busy stretches, a save still happens at least every {@link #MAX_SAVE_DELAY}.</li>
+ * <li>When nothing is happening, the scheduler only checks in occasionally, and less and less often.</li>
+ * </ul>
+ *
+ * Counts of the saves performed and avoided are kept for the lifetime of the process, and are shown alongside the
+ * latency statistics.
+ *
+ * @author nolan
+ *
+ */
+public class AutosaveScheduler {
+
+    /**
+     * Does the actual work for the scheduler.  Both methods are called on the handler's thread.
+     */
+    public static interface Saver {
+
+        public boolean needsSave();
+
+        public void save();
+    }
+
+    private static final UtilLogger log = new UtilLogger(AutosaveScheduler.class);
+
+    private static final long INPUT_DEBOUNCE = TimeUnit.SECONDS.toMillis(5);
+    private static final long CONFIRMED_DELAY = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_SAVE_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_IDLE_CHECK_PERIOD = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_IDLE_CHECK_PERIOD = TimeUnit.MINUTES.toMillis(5);
+
+    private static final AtomicInteger savesPerformed = new AtomicInteger();
+    private static final AtomicInteger savesAvoided = new AtomicInteger();
+
+    private final Handler handler;
+    private final Saver saver;
+
+    // time of the first change that hasn't been saved yet, or 0 if there isn't one
+    private long firstUnsavedInputTime;
+    private long idleCheckPeriod = MIN_IDLE_CHECK_PERIOD;
+    private boolean started;
+
+    private final Runnable saveRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            saveIfNecessary();
+        }
+    };
+
+    public AutosaveScheduler(Handler handler, Saver saver) {
+        this.handler = handler;
+        this.saver = saver;
+    }
+
+    /**
+     * Start scheduling saves, e.g. when the activity is resumed.
+     */
+    public synchronized void start() {
+        started = true;
+        idleCheckPeriod = MIN_IDLE_CHECK_PERIOD;
+        long now = SystemClock.uptimeMillis();
+        scheduleAt(firstUnsavedInputTime != 0 ? now + INPUT_DEBOUNCE : now + idleCheckPeriod);
+    }
+
+    /**
+     * Stop scheduling saves, e.g. because the activity is paused and will save by itself.
+     */
+    public synchronized void stop() {
+        started = false;
+        firstUnsavedInputTime = 0;
+        handler.removeCallbacks(saveRunnable);
+    }
+
+    /**
+     * The user changed a score.  May be called from any thread.
+     */
+    public synchronized void onInput() {
+        long now = SystemClock.uptimeMillis();
+        if (firstUnsavedInputTime == 0) {
+            firstUnsavedInputTime = now;
+        } else {
+            // this change will be written by the save that's already pending
+            savesAvoided.incrementAndGet();
+        }
+        idleCheckPeriod = MIN_IDLE_CHECK_PERIOD;
+        scheduleAt(Math.min(now + INPUT_DEBOUNCE, firstUnsavedInputTime + MAX_SAVE_DELAY));
+    }
+
+    /**
+     * A player's pending delta was confirmed, so the user has likely finished with it.  May be called from any
+     * thread.
+     */
+    public synchronized void onChangesConfirmed() {
+        if (firstUnsavedInputTime == 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        scheduleAt(Math.min(now + CONFIRMED_DELAY, firstUnsavedInputTime + MAX_SAVE_DELAY));
+    }
+
+    private void scheduleAt(long uptimeMillis) {
+        if (!started) {
+            return;
+        }
+        handler.removeCallbacks(saveRunnable);
+        handler.postAtTime(saveRunnable, uptimeMillis);
+    }
+
+    private void saveIfNecessary() {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            firstUnsavedInputTime = 0;
+        }
+
+        if (saver.needsSave()) {
+            log.d("autosaving");
+            saver.save();
+            savesPerformed.incrementAndGet();
+            synchronized (this) {
+                idleCheckPeriod = MIN_IDLE_CHECK_PERIOD;
+            }
+        } else {
+            log.d("no need to autosave");
+            synchronized (this) {
+                // nothing's happening, so check less often
+                idleCheckPeriod = Math.min(idleCheckPeriod * 2, MAX_IDLE_CHECK_PERIOD);
+            }
+        }
+
+        synchronized (this) {
+            if (firstUnsavedInputTime == 0) {
+                scheduleAt(SystemClock.uptimeMillis() + idleCheckPeriod);
+            } // else the input that arrived during the save already scheduled the next one
+        }
+    }
+
+    public static int getSavesPerformed() {
+        return savesPerformed.get();
+    }
+
+    /**
+     * @return the number of changes that were written together with another change, rather than needing a save
+     *         of their own
+     */
+    public static int getSavesAvoided() {
+        return savesAvoided.get();
+    }
+
+    public static void clearStats() {
+        savesPerformed.set(0);
+        savesAvoided.set(0);
+    }
+}
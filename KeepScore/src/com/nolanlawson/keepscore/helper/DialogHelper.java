@@ -1,22 +1,19 @@
 package com.nolanlawson.keepscore.helper;
 
-import java.util.List;
-
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.EditText;
 
 import com.nolanlawson.keepscore.R;
 import com.nolanlawson.keepscore.SettingsActivity;
+import com.nolanlawson.keepscore.data.PlayerNameAdapter;
 import com.nolanlawson.keepscore.util.Callback;
 import com.nolanlawson.keepscore.util.IntegerUtil;
 import com.nolanlawson.keepscore.util.StringUtil;
@@ -151,8 +148,11 @@ public class DialogHelper {
 	editText.setHint(context.getString(R.string.text_player) + " "
 		+ (newPlayerNumber + 1));
 	editText.setText(StringUtil.nullToEmpty(startingValue));
+	// suggestions are looked up in the background as the user types
+	final PlayerNameAdapter playerNameAdapter = new PlayerNameAdapter(context);
+	editText.setAdapter(playerNameAdapter);
 
-	new AlertDialog.Builder(context)
+	AlertDialog dialog = new AlertDialog.Builder(context)
 		.setTitle(titleResId)
 		.setView(editText)
 		.setCancelable(true)
@@ -172,25 +172,15 @@ public class DialogHelper {
 
 			    }
 			}).setNegativeButton(android.R.string.cancel, null)
-		.show();
+		.create();
 
-	// fetch suggestions in the background to avoid jankiness
-	new AsyncTask<Void, Void, List<String>>() {
+	dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
 
 	    @Override
-	    protected List<String> doInBackground(Void... params) {
-		return PlayerNameHelper.getPlayerNameSuggestions(context);
+	    public void onDismiss(DialogInterface dialog) {
+		playerNameAdapter.close();
 	    }
-
-	    @Override
-	    protected void onPostExecute(List<String> result) {
-		super.onPostExecute(result);
-		ArrayAdapter<String> adapter = new ArrayAdapter<String>(
-			context, R.layout.simple_dropdown_small, result);
-		editText.setAdapter(adapter);
-	    }
-
-	}.execute((Void) null);
-
+	});
+	dialog.show();
     }
 }
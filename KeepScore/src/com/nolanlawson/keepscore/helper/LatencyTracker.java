@@ -0,0 +1,119 @@
+package com.nolanlawson.keepscore.helper;
+
+import java.util.Locale;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.nolanlawson.keepscore.R;
+import com.nolanlawson.keepscore.util.LatencyHistogram;
+
+/**
+ * Keeps track of how long the user waits for the things they do on the game screen, e.g. how long it takes from
+ * tapping a button to seeing the new score on screen.
+ *
+ * Samples (and the {@link AutosaveScheduler} counts) are kept in memory for the lifetime of the process and can be viewed from the settings.
+ *
+ * @author nolan
+ *
+ */
+public class LatencyTracker {
+
+    public static enum Operation {
+        /** From a tap on a +/- button to the frame showing the new score */
+        Tap(R.string.text_latency_tap),
+        /** Writing the game to the database */
+        Autosave(R.string.text_latency_autosave),
+        /** From choosing undo or redo to the frame showing the result */
+        Undo(R.string.text_latency_undo), ;
+
+        private int titleResId;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Operation(int titleResId) {
+            this.titleResId = titleResId;
+        }
+
+        public int getTitleResId() {
+            return titleResId;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * @return a start time to later pass in to {@link #record(Operation, long)}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time elapsed since the start time.
+     */
+    public static void record(Operation operation, long startTime) {
+        operation.getHistogram().record((System.nanoTime() - startTime) / 1000);
+    }
+
+    /**
+     * Record the time elapsed since the start time once the view is about to draw its next frame, i.e. once the user
+     * can actually see the result. Must be called on the UI thread.
+     */
+    public static void recordOnNextFrame(final View view, final Operation operation, final long startTime) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+
+            @Override
+            public boolean onPreDraw() {
+                record(operation, startTime);
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                return true;
+            }
+        });
+        view.invalidate();
+    }
+
+    public static void clear() {
+        for (Operation operation : Operation.values()) {
+            operation.getHistogram().clear();
+        }
+        AutosaveScheduler.clearStats();
+    }
+
+    /**
+     * @return a human-readable summary of all the samples so far, including the full histograms
+     */
+    public static String createReport(Context context) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = operation.getHistogram();
+
+            stringBuilder.append(context.getString(operation.getTitleResId())).append('\n');
+            stringBuilder.append(context.getString(R.string.text_latency_summary, histogram.getCount(),
+                    toMillis(histogram.getPercentileMicros(50)), toMillis(histogram.getPercentileMicros(90)),
+                    toMillis(histogram.getPercentileMicros(99)), toMillis(histogram.getMaxMicros())));
+            stringBuilder.append('\n');
+
+            for (int i = 0; i < histogram.getNumBuckets(); i++) {
+                int bucketCount = histogram.getBucketCount(i);
+                if (bucketCount == 0) {
+                    continue;
+                }
+                long upperBound = histogram.getBucketUpperBoundMicros(i);
+                stringBuilder.append(upperBound == Long.MAX_VALUE ? "  >" : "  <=")
+                        .append(toMillis(upperBound == Long.MAX_VALUE ? histogram.getBucketUpperBoundMicros(i - 1)
+                                : upperBound)).append(" ms: ").append(bucketCount).append('\n');
+            }
+            stringBuilder.append('\n');
+        }
+        stringBuilder.append(context.getString(R.string.text_autosave_summary, AutosaveScheduler.getSavesPerformed(),
+                AutosaveScheduler.getSavesAvoided())).append('\n');
+        return stringBuilder.toString();
+    }
+
+    private static String toMillis(long micros) {
+        return String.format(Locale.US, "%.1f", micros / 1000.0);
+    }
+}
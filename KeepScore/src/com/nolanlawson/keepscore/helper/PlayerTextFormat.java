@@ -116,7 +116,7 @@ public enum PlayerTextFormat {
 				return FiveToSixPlayers;
 			case 7:
 			case 8:
-			default:
+			default: // also used for the cells of the scrolling scoreboard
 				return SevenToEightPlayers;
 		}
 	}
@@ -82,13 +82,16 @@ public class SdcardHelper {
      * 
      * Ditto for the "spreadsheets" folder.
      * 
+     * The "diagnostics" folder holds reports (e.g. latency statistics) that are useful for debugging.
+     * 
      * @author nolan
      *
      */
     public static enum Location {
         Backups("backups"), 
         Shares("shares"),
-        Spreadsheets("spreadsheets")
+        Spreadsheets("spreadsheets"),
+        Diagnostics("diagnostics")
         ;
         
         private String directoryName;
@@ -268,6 +271,22 @@ public class SdcardHelper {
      * @return
      */
     public static boolean save(String filename, Format format, Location location, String xmlData) {
+        return write(filename, format == Format.GZIP, location, xmlData);
+    }
+
+    /**
+     * Save a plain text file, e.g. a report.
+     * 
+     * @param filename
+     * @param location
+     * @param text
+     * @return
+     */
+    public static boolean saveText(String filename, Location location, String text) {
+        return write(filename, false, location, text);
+    }
+
+    private static boolean write(String filename, boolean gzip, Location location, String data) {
         File newFile = new File(getDirectory(location), filename);
         try {
             if (!newFile.exists()) {
@@ -284,11 +303,11 @@ public class SdcardHelper {
 
             // specifying BUFFER gets rid of an annoying warning message in the logs
             out = new BufferedOutputStream(new FileOutputStream(newFile, true), BUFFER);
-            if (format == Format.GZIP) {
+            if (gzip) {
                 out = new GZIPOutputStream(out);
             }
             writer = new OutputStreamWriter(out, "UTF-8");
-            writer.write(xmlData);
+            writer.write(data);
         } catch (FileNotFoundException ex) {
             log.e(ex, "unexpected exception");
             return false;
@@ -318,6 +337,10 @@ public class SdcardHelper {
         return createFilename("spreadsheet-", ".csv");
     }
     
+    public static String createLatencyReportFilename() {
+        return createFilename("latency-", ".txt");
+    }
+    
     public static String createBackupFilename(Format format) {
         return createFilename("games-", (format == Format.GZIP ? ".xml.gz" : ".xml"));
     }
@@ -0,0 +1,98 @@
+package com.nolanlawson.keepscore.util;
+
+/**
+ * Cheap histogram of latencies, using power-of-two buckets so that recording a sample is just a few integer
+ * operations and never allocates.
+ *
+ * Bucket i holds samples between 2^(i-1) (exclusive) and 2^i (inclusive) microseconds, with the last bucket
+ * holding everything larger.
+ *
+ * @author nolan
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int NUM_BUCKETS = 25; // up to ~16 seconds
+
+    private final int[] buckets = new int[NUM_BUCKETS];
+    private int count;
+    private long totalMicros;
+    private long maxMicros;
+
+    public synchronized void record(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        buckets[getBucketIndex(micros)]++;
+        count++;
+        totalMicros += micros;
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        totalMicros = 0;
+        maxMicros = 0;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized long getMeanMicros() {
+        return count == 0 ? 0 : totalMicros / count;
+    }
+
+    public synchronized long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Estimate the given percentile, which is accurate to within a factor of two.
+     *
+     * @param percentile
+     *            between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, in microseconds
+     */
+    public synchronized long getPercentileMicros(int percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, ((long) count * percentile + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= threshold) {
+                return Math.min(getBucketUpperBoundMicros(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    public int getNumBuckets() {
+        return NUM_BUCKETS;
+    }
+
+    public synchronized int getBucketCount(int bucketIndex) {
+        return buckets[bucketIndex];
+    }
+
+    /**
+     * @return the largest value that falls into the bucket, or Long.MAX_VALUE for the last one
+     */
+    public long getBucketUpperBoundMicros(int bucketIndex) {
+        return bucketIndex == NUM_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucketIndex);
+    }
+
+    private static int getBucketIndex(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        // i.e. ceil(log2(micros))
+        int index = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(index, NUM_BUCKETS - 1);
+    }
+}
@@ -1,13 +1,14 @@
 package com.nolanlawson.keepscore.widget;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import android.content.Context;
 import android.text.TextPaint;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.widget.TextView;
 
-import com.nolanlawson.keepscore.util.UtilLogger;
-
 /**
  * 
  * Simple TextView that changes the text size so that the text size can grow smaller as the
@@ -21,11 +22,25 @@ import com.nolanlawson.keepscore.util.UtilLogger;
  */
 public class AutoResizeTextView extends TextView {
 
-    private static UtilLogger log = new UtilLogger(AutoResizeTextView.class);
-
     // don't make it any smaller than this, no matter what
     private static final float MIN_TEXT_SIZE = 20.0F;
     
+    // how many fitted text sizes to remember, shared between all the score views
+    private static final int CACHE_SIZE = 64;
+
+    // only ever accessed from the UI thread
+    private static final Map<String, Float> fittedTextSizes = new LinkedHashMap<String, Float>(CACHE_SIZE, 0.75F,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private static final TextPaint measurePaint = new TextPaint();
+
     private float maxTextSize;
 
     public AutoResizeTextView(Context context, AttributeSet attrs, int defStyle) {
@@ -67,13 +82,6 @@ public class AutoResizeTextView extends TextView {
      */
     public void resizeText() {
 
-        TextPaint textPaint = getPaint();
-        String text = getText().toString();
-
-        textPaint.setTextSize(maxTextSize);
-        
-        float oldTextSize = maxTextSize;
-
         int widthLimit = getMeasuredWidth() - getCompoundPaddingLeft() - getCompoundPaddingRight();
 
         if (widthLimit <= 0) {
@@ -81,23 +89,55 @@ public class AutoResizeTextView extends TextView {
             return;
         }
 
-        float actualTextWidth = textPaint.measureText(text);
+        String text = getText().toString();
+        TextPaint textPaint = getPaint();
+
+        String cacheKey = createCacheKey(text, widthLimit, textPaint);
+        Float newTextSize = fittedTextSizes.get(cacheKey);
+
+        if (newTextSize == null) {
+            newTextSize = findFittingTextSize(text, widthLimit, textPaint);
+            fittedTextSizes.put(cacheKey, newTextSize);
+        }
+
+        if (Math.round(newTextSize) != Math.round(getTextSize())) {
+            setTextSize(TypedValue.COMPLEX_UNIT_PX, Math.round(newTextSize));
+        }
+    }
 
-        float newTextSize = oldTextSize;
+    /**
+     * Binary search for the largest text size (in whole pixels) at which the text fits, down to MIN_TEXT_SIZE.
+     */
+    private float findFittingTextSize(String text, int widthLimit, TextPaint textPaint) {
 
-        log.d("before resize: widthLimit=%d, oldTextSize=%g, actualTextWidth=%g, newTextSize=%g, text=\"%s\"",
-                widthLimit, oldTextSize, actualTextWidth, newTextSize, text);
+        // measure with a copy, so the view's own paint isn't touched
+        measurePaint.set(textPaint);
 
-        // keep trying smaller size until we find one that fits
-        while (newTextSize > MIN_TEXT_SIZE && actualTextWidth > widthLimit) {
-            newTextSize -= 2;
-            textPaint.setTextSize(newTextSize);
-            actualTextWidth = textPaint.measureText(text);
+        measurePaint.setTextSize(maxTextSize);
+        if (measurePaint.measureText(text) <= widthLimit) {
+            return maxTextSize;
         }
 
-        log.d("after resize : widthLimit=%d, oldTextSize=%g, actualTextWidth=%g, newTextSize=%g, text=\"%s\"",
-                widthLimit, oldTextSize, actualTextWidth, newTextSize, text);
+        int low = (int) MIN_TEXT_SIZE; // assume this one fits; nothing smaller is allowed anyway
+        int high = (int) Math.ceil(maxTextSize) - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            measurePaint.setTextSize(mid);
+            if (measurePaint.measureText(text) <= widthLimit) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.min(low, maxTextSize);
+    }
 
-        setTextSize(TypedValue.COMPLEX_UNIT_PX, Math.round(newTextSize));
+    /**
+     * Keyed on the exact text, since digits aren't all the same width in proportional fonts.
+     */
+    private String createCacheKey(String text, int widthLimit, TextPaint textPaint) {
+        return new StringBuilder(text.length() + 24).append(text).append('|').append(widthLimit).append('|')
+                .append(maxTextSize).append('|').append(System.identityHashCode(textPaint.getTypeface())).toString();
     }
 }
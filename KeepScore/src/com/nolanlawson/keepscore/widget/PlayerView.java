@@ -35,6 +35,8 @@ import com.nolanlawson.keepscore.db.PlayerScore;
 import com.nolanlawson.keepscore.helper.ColorScheme;
 import com.nolanlawson.keepscore.helper.DialogHelper;
 import com.nolanlawson.keepscore.helper.DialogHelper.ResultListener;
+import com.nolanlawson.keepscore.helper.LatencyTracker;
+import com.nolanlawson.keepscore.helper.LatencyTracker.Operation;
 import com.nolanlawson.keepscore.helper.PreferenceHelper;
 import com.nolanlawson.keepscore.helper.VersionHelper;
 import com.nolanlawson.keepscore.util.Callback;
@@ -50,6 +52,9 @@ import com.nolanlawson.keepscore.util.UtilLogger;
  * Main view that holds the widgets for a single player, e.g. the player name,
  * the player's score, and any + or - buttons.
  * 
+ * The widgets can be detached and re-attached, so that in the scrolling scoreboard
+ * a small number of recycled views can be shared between many players.
+ * 
  * @author nolan
  * 
  */
@@ -82,21 +87,40 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
     private HistoryUpdateRunnable historyUpdateRunnable;
     private final Object lock = new Object();
     private boolean animationRunning;
-    private Runnable onChangeListener;
-    private Runnable updateViewsRunnable;
+    private ViewUpdateScheduler updateScheduler;
     private Callback<RecordedChange> changeRecorder;
+    private Runnable onHistoryConfirmed;
+    // start time of the earliest tap that hasn't been shown on screen yet, or 0 if none
+    private AtomicLong pendingTapStart = new AtomicLong(0);
 
     public PlayerView(Context context, View view, PlayerScore playerScore, Handler handler,
 	    boolean showOnscreenDeltaButtons) {
-	this.view = view;
+	this(context, playerScore, handler, showOnscreenDeltaButtons);
+	attachView(view);
+    }
+
+    /**
+     * Create a PlayerView that isn't attached to any widgets yet.
+     */
+    public PlayerView(Context context, PlayerScore playerScore, Handler handler, boolean showOnscreenDeltaButtons) {
 	this.playerScore = playerScore;
 	this.context = context;
 	this.handler = handler;
 	this.showOnscreenDeltaButtons = showOnscreenDeltaButtons;
-	init();
+	ColorScheme colorScheme = PreferenceHelper.getColorScheme(context);
+	setNewColorScheme(colorScheme);
     }
 
-    private void init() {
+    /**
+     * Bind this player to the given widgets (inflated from the player_score layout), detaching it from any widgets
+     * it was bound to before.  Must be called on the UI thread.
+     */
+    public void attachView(View view) {
+
+	if (this.view != null) {
+	    detachView();
+	}
+	this.view = view;
 
 	// enable or disable onscreen delta buttons based on whether we have
 	// enough room onscreen or not
@@ -138,8 +162,11 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	historyTextView.setOnLongClickListener(this);
 	badgeLinearLayout.setOnClickListener(this);
 
-	ColorScheme colorScheme = PreferenceHelper.getColorScheme(context);
-	setNewColorScheme(colorScheme);
+	// the widgets may have been showing some other player
+	historyTextView.setTag(null);
+	badgeTextView.clearAnimation();
+	badgeTextView.setVisibility(View.INVISIBLE);
+	badgeLinearLayout.setVisibility(View.INVISIBLE);
 
 	updateViews();
 
@@ -147,10 +174,45 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 
     }
 
+    /**
+     * Unbind this player from its widgets, e.g. because they're being recycled for another player.  Must be called
+     * on the UI thread.
+     */
+    public void detachView() {
+	synchronized (lock) {
+	    if (badgeTextView != null) {
+		badgeTextView.clearAnimation();
+	    }
+	    animationRunning = false;
+
+	    view = null;
+	    divider1 = divider2 = deltaButtonsViewStub = null;
+	    tagImageView = null;
+	    scoreTextView = nameTextView = null;
+	    historyTextView = badgeTextView = null;
+	    badgeLinearLayout = onscreenDeltaButtonsLayout = null;
+	    minusButton = plusButton = deltaButton1 = deltaButton2 = deltaButton3 = deltaButton4 = null;
+	}
+    }
+
+    public boolean isAttached() {
+	return view != null;
+    }
+
+    /**
+     * The change recorder is responsible for actually applying each change to the PlayerScore.
+     */
     public void setChangeRecorder(Callback<RecordedChange> changeRecorder) {
 	this.changeRecorder = changeRecorder;
     }
 
+    /**
+     * Called whenever the player's pending delta gets confirmed, i.e. moved from the badge into the history.
+     */
+    public void setOnHistoryConfirmed(Runnable onHistoryConfirmed) {
+	this.onHistoryConfirmed = onHistoryConfirmed;
+    }
+
     public LinearLayout getOnscreenDeltaButtonsLayout() {
 	return onscreenDeltaButtonsLayout;
     }
@@ -222,8 +284,11 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	return deltaButton4;
     }
 
-    public void setOnChangeListener(Runnable onChangeListener) {
-	this.onChangeListener = onChangeListener;
+    /**
+     * The scheduler batches this view's updates together with those of the other PlayerViews.
+     */
+    public void setUpdateScheduler(ViewUpdateScheduler updateScheduler) {
+	this.updateScheduler = updateScheduler;
     }
 
     @Override
@@ -258,6 +323,7 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
     }
 
     private void increment(final int delta) {
+	pendingTapStart.compareAndSet(0, LatencyTracker.start());
 	new IncrementDeltaAsyncTask(delta).execute(((Void) null));
     }
 
@@ -266,44 +332,73 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	long currentTime = System.currentTimeMillis();
 	long lastIncrementedTime = lastIncremented.getAndSet(currentTime);
 
+	// the change recorder applies each change to the playerScore
 	if (currentTime - lastIncrementedTime > getUpdateDelayInMs() || playerScore.getHistory().isEmpty()) {
 
 	    // if it's been awhile since the last time we incremented
 	    changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.AddNew, delta));
-	    playerScore.getHistory().add(delta);
 	} else {
 	    // else just update the most recent history item
 	    int lastIndex = playerScore.getHistory().size() - 1;
-	    int newValue = playerScore.getHistory().get(lastIndex) + delta;
-	    if (newValue == 0) { // don't add "0" to the list; just delete the
+	    int lastValue = playerScore.getHistory().get(lastIndex);
+	    if (lastValue + delta == 0) { // don't add "0" to the list; just delete the
 		// last history item
-		int deletedValue = playerScore.getHistory().remove(lastIndex);
 		changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.DeleteLastZero,
-			deletedValue));
+			lastValue));
 		lastIncremented.set(0); // reset the lastIncremented time so we
 		// don't update the
 		// previous value later
 	    } else {
-		playerScore.getHistory().set(lastIndex, newValue);
 		changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.ModifyLast, delta));
 	    }
 	}
 
-	playerScore.setScore(playerScore.getScore() + delta);
-
 	shouldAutosave.set(true);
+	playerScore.setLastUpdate(System.currentTimeMillis());
 
 	// this runnable updates the history after 10 seconds and makes the
 	// blibbet disappear
 	createDelayedHistoryUpdateTask();
 
-	// this runnable updates the history text view and the total score text
-	// view
-	handler.post(getUpdateViewsRunnable());
+	// update the history text view and the total score text view in the next pass
+	scheduleUpdate();
+    }
+
+    /**
+     * Update the views in the next pass of the update scheduler, along with any other PlayerViews that have changed.
+     */
+    public void scheduleUpdate() {
+	if (updateScheduler != null) {
+	    updateScheduler.markDirty(this);
+	} else {
+	    handler.post(new Runnable() {
+
+		@Override
+		public void run() {
+		    onScheduledUpdate();
+		}
+	    });
+	}
+    }
+
+    /**
+     * Called by the update scheduler on the UI thread.
+     */
+    void onScheduledUpdate() {
+	updateViews();
+
+	long tapStart = pendingTapStart.getAndSet(0);
+	if (tapStart != 0 && isAttached()) {
+	    LatencyTracker.recordOnNextFrame(scoreTextView, Operation.Tap, tapStart);
+	}
     }
 
     public void updateViews() {
 
+	if (!isAttached()) {
+	    return; // scrolled out of view; will be updated when it's attached again
+	}
+
 	long currentTime = System.currentTimeMillis();
 
 	if (borderDrawable == null) {
@@ -338,9 +433,10 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 
 		@Override
 		public void run() {
-		    historyTextView.setText(newText);
-		    historyTextView.setTag(newHash);
-
+		    if (historyTextView != null) {
+			historyTextView.setText(newText);
+			historyTextView.setTag(newHash);
+		    }
 		}
 	    };
 	    fadeOutBadge(updateHistoryRunnable);
@@ -418,6 +514,9 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 		    @Override
 		    public void onAnimationEnd(Animation animation) {
 			synchronized (lock) {
+			    if (badgeTextView == null) {
+				return; // detached in the meantime
+			    }
 			    badgeTextView.setVisibility(View.INVISIBLE);
 
 			    // necessary to update again to set the history text
@@ -610,12 +709,11 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	// with no points for a particular player
 	synchronized (lock) {
 	    changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.AddNew, 0));
-	    playerScore.getHistory().add(0);
 	}
 
 	lastIncremented.set(0); // reset last incremented
 	shouldAutosave.set(true);
-	updateViews();
+	scheduleUpdate();
 
     }
 
@@ -625,14 +723,13 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	    List<Integer> history = playerScore.getHistory();
 	    // undo the last history items
 	    if (history != null && !history.isEmpty()) {
-		Integer removed = history.remove((int) (history.size() - 1));
-		playerScore.setScore(playerScore.getScore() - removed);
-		changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.DeleteLast, removed));
+		int last = history.get(history.size() - 1);
+		changeRecorder.onCallback(new RecordedChange(playerScore.getPlayerNumber(), Type.DeleteLast, last));
 	    }
 	}
 	lastIncremented.set(0); // reset lastIncremented
 	shouldAutosave.set(true);
-	updateViews();
+	scheduleUpdate();
     }
 
     private void showAdditionalDeltasPopup(final boolean positive) {
@@ -663,7 +760,7 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	lastIncremented.set(0);
 	shouldAutosave.set(true);
 
-	updateViews();
+	scheduleUpdate();
 
     }
 
@@ -672,6 +769,13 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	handler.removeCallbacks(getHistoryUpdateRunnable()); // remove pending
 	// runnables
 	updateViews();
+	notifyHistoryConfirmed();
+    }
+
+    private void notifyHistoryConfirmed() {
+	if (onHistoryConfirmed != null) {
+	    onHistoryConfirmed.run();
+	}
     }
 
     public void cancelPendingUpdates() {
@@ -692,27 +796,6 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	return PreferenceHelper.getUpdateDelay(context) * 1000L;
     }
 
-    private Runnable getUpdateViewsRunnable() {
-	if (updateViewsRunnable == null) {
-	    updateViewsRunnable = new Runnable() {
-
-		@Override
-		public void run() {
-		    updateViews();
-
-		    playerScore.setLastUpdate(System.currentTimeMillis());
-		    
-		    // this runnable updates the round total, if there is one
-		    if (onChangeListener != null) {
-			onChangeListener.run();
-		    }
-		    
-		}
-	    };
-	}
-	return updateViewsRunnable;
-    }
-
     private HistoryUpdateRunnable getHistoryUpdateRunnable() {
 
 	if (historyUpdateRunnable == null) {
@@ -728,54 +811,6 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	borderDrawable = null;
     }
 
-    public void revertChange(RecordedChange recordedChange) {
-	synchronized (lock) {
-
-	    switch (recordedChange.getType()) {
-	    case AddNew:
-		playerScore.getHistory().remove(playerScore.getHistory().size() - 1);
-		playerScore.setScore(playerScore.getScore() - recordedChange.getValue());
-		break;
-	    case DeleteLast:
-	    case DeleteLastZero:
-		playerScore.getHistory().add(recordedChange.getValue());
-		playerScore.setScore(playerScore.getScore() + recordedChange.getValue());
-		break;
-	    case ModifyLast:
-	    default:
-		int lastIdx = playerScore.getHistory().size() - 1;
-		playerScore.getHistory()
-			.set(lastIdx, playerScore.getHistory().get(lastIdx) - recordedChange.getValue());
-		playerScore.setScore(playerScore.getScore() - recordedChange.getValue());
-		break;
-	    }
-	}
-    }
-
-    public void reexecuteChange(RecordedChange recordedChange) {
-	synchronized (lock) {
-
-	    switch (recordedChange.getType()) {
-	    case AddNew:
-		playerScore.getHistory().add(recordedChange.getValue());
-		playerScore.setScore(playerScore.getScore() + recordedChange.getValue());
-		break;
-	    case DeleteLast:
-	    case DeleteLastZero:
-		playerScore.getHistory().remove(playerScore.getHistory().size() - 1);
-		playerScore.setScore(playerScore.getScore() - recordedChange.getValue());
-		break;
-	    case ModifyLast:
-	    default:
-		int lastIdx = playerScore.getHistory().size() - 1;
-		playerScore.getHistory()
-			.set(lastIdx, playerScore.getHistory().get(lastIdx) + recordedChange.getValue());
-		playerScore.setScore(playerScore.getScore() + recordedChange.getValue());
-		break;
-	    }
-	}
-    }
-
     private class HistoryUpdateRunnable implements Runnable {
 
 	private boolean canceled;
@@ -790,6 +825,7 @@ public class PlayerView implements OnClickListener, OnLongClickListener {
 	    if (currentTime >= (lastIncremented.get() + getUpdateDelayInMs()) && !playerScore.getHistory().isEmpty()) {
 		// not modifiable anymore, need to unbold the last history item
 		updateViews();
+		notifyHistoryConfirmed();
 	    }
 	}
 
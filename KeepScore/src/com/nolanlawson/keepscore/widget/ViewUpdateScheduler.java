@@ -0,0 +1,91 @@
+package com.nolanlawson.keepscore.widget;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import android.os.Handler;
+
+/**
+ * Batches up view updates from all the PlayerViews on the game screen.  PlayerViews just mark themselves as dirty
+ * (from any thread), and all the dirty views are refreshed together in a single pass on the UI thread, before the
+ * next frame is drawn.  Afterwards, the views that depend on every player (e.g. the round totals) are updated
+ * once, rather than once per player.
+ *
+ * @author nolan
+ *
+ */
+public class ViewUpdateScheduler {
+
+    private final Handler handler;
+    private final Runnable onUpdatesFinished;
+
+    private final Set<PlayerView> dirtyPlayerViews = new LinkedHashSet<PlayerView>();
+    private boolean scheduled;
+
+    private final Runnable updateRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            updateDirtyViews();
+        }
+    };
+
+    /**
+     * @param handler
+     *            handler for the UI thread
+     * @param onUpdatesFinished
+     *            called on the UI thread after each pass where at least one PlayerView was updated
+     */
+    public ViewUpdateScheduler(Handler handler, Runnable onUpdatesFinished) {
+        this.handler = handler;
+        this.onUpdatesFinished = onUpdatesFinished;
+    }
+
+    /**
+     * Schedule the PlayerView to be updated in the next pass.  May be called from any thread.
+     */
+    public void markDirty(PlayerView playerView) {
+        synchronized (dirtyPlayerViews) {
+            dirtyPlayerViews.add(playerView);
+            if (scheduled) {
+                return; // will be picked up by the pass that's already pending
+            }
+            scheduled = true;
+        }
+        handler.post(updateRunnable);
+    }
+
+    /**
+     * Drop any pending updates, e.g. because the PlayerViews are about to be replaced.
+     */
+    public void cancel() {
+        synchronized (dirtyPlayerViews) {
+            dirtyPlayerViews.clear();
+            scheduled = false;
+        }
+        handler.removeCallbacks(updateRunnable);
+    }
+
+    private void updateDirtyViews() {
+        List<PlayerView> playerViewsToUpdate;
+        synchronized (dirtyPlayerViews) {
+            playerViewsToUpdate = new ArrayList<PlayerView>(dirtyPlayerViews);
+            dirtyPlayerViews.clear();
+            scheduled = false;
+        }
+
+        if (playerViewsToUpdate.isEmpty()) {
+            return;
+        }
+
+        for (PlayerView playerView : playerViewsToUpdate) {
+            playerView.onScheduledUpdate();
+        }
+
+        if (onUpdatesFinished != null) {
+            onUpdatesFinished.run();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.nolanlawson.keepscore.widget.chart;
+
+import java.util.List;
+
+/**
+ * A line's data points in screen coordinates, reduced to what can actually be seen at the current zoom level.  All
+ * the rounds that fall in the same pixel column are replaced by the first, lowest, highest and last of them (in their
+ * original order), so the line keeps its shape and its peaks while having O(width) points rather than O(rounds).
+ *
+ * The x coordinates are in ascending order, so the points within any horizontal range can be found by binary search.
+ *
+ * @author nolan
+ *
+ */
+public class DownsampledLine {
+
+    private float[] xs;
+    private float[] ys;
+    private int size;
+    private int lastIndex = -1; // index in the original data of the last point added
+
+    private DownsampledLine(int capacity) {
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+
+    /**
+     * @param dataPoints
+     *            the line's values, one per round
+     * @param offsetX
+     *            x coordinate of the first round
+     * @param itemWidth
+     *            horizontal distance between rounds, in pixels
+     * @param offsetY
+     *            y coordinate of the top of the chart
+     * @param height
+     *            height of the chart, from minValue at the bottom to maxValue at the top
+     */
+    public static DownsampledLine create(List<Integer> dataPoints, int offsetX, float itemWidth, int offsetY,
+            int height, int minValue, int maxValue) {
+
+        int numDataPoints = dataPoints.size();
+        DownsampledLine result = new DownsampledLine(numDataPoints);
+
+        int start = 0;
+        while (start < numDataPoints) {
+            int column = (int) (offsetX + start * itemWidth);
+
+            // find the rest of the rounds in this pixel column
+            int end = start + 1;
+            int minIndex = start;
+            int maxIndex = start;
+            while (end < numDataPoints && (int) (offsetX + end * itemWidth) == column) {
+                if (dataPoints.get(end) < dataPoints.get(minIndex)) {
+                    minIndex = end;
+                }
+                if (dataPoints.get(end) > dataPoints.get(maxIndex)) {
+                    maxIndex = end;
+                }
+                end++;
+            }
+            int last = end - 1;
+
+            int lowIndex = Math.min(minIndex, maxIndex);
+            int highIndex = Math.max(minIndex, maxIndex);
+
+            for (int index : new int[] { start, lowIndex, highIndex, last }) {
+                result.addIfNew(index, offsetX + index * itemWidth, offsetY
+                        + toY(dataPoints.get(index), height, minValue, maxValue));
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    private static float toY(int value, int height, int minValue, int maxValue) {
+        return Math.round(height - (((1.0 * value - minValue) / (maxValue - minValue)) * height));
+    }
+
+    private void addIfNew(int index, float x, float y) {
+        if (index <= lastIndex) {
+            return; // e.g. the first round in the column was also the lowest
+        }
+        lastIndex = index;
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * @return the index of the last point at or to the left of x, or 0 if there isn't one
+     */
+    public int findIndexBefore(float x) {
+        int low = 0;
+        int high = size - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] <= x) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first point at or to the right of x, or the last index if there isn't one
+     */
+    public int findIndexAfter(float x) {
+        int low = 0;
+        int high = size - 1;
+        int result = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] >= x) {
+                result = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return result;
+    }
+}
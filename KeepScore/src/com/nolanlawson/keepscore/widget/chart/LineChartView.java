@@ -6,13 +6,20 @@ import java.util.Collections;
 import java.util.List;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
+import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
 
 import com.nolanlawson.keepscore.R;
 import com.nolanlawson.keepscore.util.CollectionUtil;
@@ -22,6 +29,13 @@ import com.nolanlawson.keepscore.util.UtilLogger;
 /**
  * Basic View for drawing line graphs. Uses some basic color defaults.
  * 
+ * The chart is usually much wider than the screen, so it's rendered into vertical tiles, and only the tiles that are
+ * visible get drawn.  The tiles and the downsampled lines they're drawn from are kept until the data, zoom level or
+ * size changes, so scrolling just copies bitmaps.  Each tile only draws the rounds that fall within it.
+ * 
+ * Pinching zooms horizontally.  While the fingers are down, the cached tiles are just scaled and shifted to follow
+ * them; the chart is only laid out and rendered again at the new zoom level once the gesture ends.
+ * 
  * @author nolan
  * 
  */
@@ -40,6 +54,16 @@ public class LineChartView extends View {
     
 	private static final int MIN_INTERVAL = 5;  // round to nearest five
 	private static final List<Integer> INTERVAL_ROUNDING_POINTS = Arrays.asList(5, 10, 50, 100, 1000); // possible roundings
+	
+	private static final int TILE_WIDTH = 256;
+	private static final int MAX_UNUSED_TILES = 4;
+	
+	// long games can be zoomed out further than this, until the whole game fits on screen
+	public static final float MIN_ZOOM_LEVEL = 0.1F;
+	public static final float MAX_ZOOM_LEVEL = 3.0F;
+	
+	// at low zoom levels, vertical grid lines are only drawn for every so many rounds, so they don't blur together
+	private static final int MIN_GRID_SPACING = 5;
 
 	private static UtilLogger log = new UtilLogger(LineChartView.class);
 	
@@ -48,6 +72,9 @@ public class LineChartView extends View {
 	private Paint tertiaryPaint;
 	private List<Paint> linePaints;
 	private List<Paint> lineLabelPaints;
+	private Paint mainStrokePaint;
+	private Paint secondaryStrokePaint;
+	private Paint tertiaryStrokePaint;
 
 	private Rect bounds = new Rect();
 	
@@ -69,6 +96,26 @@ public class LineChartView extends View {
 	private int fontSize;
 	private int lineWidth;
 	
+	// render cache, rebuilt whenever the data, zoom level or size changes
+	private boolean renderCacheValid;
+	private int chartHeight;
+	private int chartOffsetX;
+	private List<Integer> intervalPoints;
+	private int maxLineDataPoints;
+	private Path borderPath;
+	private Path horizontalGridPath;
+	private List<DownsampledLine> downsampledLines = new ArrayList<DownsampledLine>();
+	private SparseArray<Bitmap> tiles = new SparseArray<Bitmap>();
+	private List<Bitmap> unusedTiles = new ArrayList<Bitmap>();
+	
+	// pinch-zoom gesture currently in progress
+	private boolean pinching;
+	private float pinchStartSpan;
+	private float pinchStartFocusX;
+	private float pinchFocusX;
+	private float pinchScale;
+	private int touchSlop;
+	private OnZoomChangedListener onZoomChangedListener;
 	
 	public LineChartView(Context context, AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
@@ -87,20 +134,47 @@ public class LineChartView extends View {
 	
 	public void setZoomLevel(float zoomLevel) {
 	    this.zoomLevel = zoomLevel;
-	    determineMainChartAreaWidth();
+	    if (data != null) { // otherwise it's applied once the data is loaded
+	        determineMainChartAreaWidth();
+	    }
+	    invalidateRenderCache();
 	}
 	
 	public float getZoomLevel() {
 	    return zoomLevel;
 	}
 	
+	/**
+	 * @return the lowest zoom level the chart can be zoomed out to, which is either {@link #MIN_ZOOM_LEVEL} or, for
+	 *         games too long to fit on screen at that level, the level at which the whole game fits.  Below one
+	 *         pixel per round, the rounds sharing a pixel column are drawn as one.
+	 */
+	public float getMinZoomLevel() {
+	    ViewParent parent = getParent();
+	    if (data == null || !(parent instanceof View)) {
+	        return MIN_ZOOM_LEVEL;
+	    }
+	    View parentView = (View) parent;
+	    int availableWidth = parentView.getWidth() - parentView.getPaddingLeft() - parentView.getPaddingRight()
+	            - (4 * chartPadding) - legendWidth - yAxisLabelWidth;
+	    int numRounds = getMaxNumDataPoints() - 1;
+	    if (availableWidth <= 0 || numRounds <= 0) {
+	        return MIN_ZOOM_LEVEL;
+	    }
+	    return Math.min(MIN_ZOOM_LEVEL, (float) availableWidth / (numRounds * itemWidth));
+	}
+	
+	public void setOnZoomChangedListener(OnZoomChangedListener onZoomChangedListener) {
+	    this.onZoomChangedListener = onZoomChangedListener;
+	}
+	
 	private int getColor(int colorId) {
 	    return getContext().getResources().getColor(colorId);
 	}
 	
-	private int getItemWidth() {
-	    // varies depending on the zoom level
-	    return Math.max(1, Math.round(itemWidth * zoomLevel));
+	private float getItemWidth() {
+	    // varies depending on the zoom level, and may be less than a pixel for long games
+	    return itemWidth * zoomLevel;
 	}
 
 	private void init() {
@@ -114,6 +188,7 @@ public class LineChartView extends View {
 				R.dimen.chart_font_size);
 		lineWidth = getContext().getResources().getDimensionPixelSize(
 				R.dimen.chart_line_width);
+		touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
 
 		mainPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 		mainPaint.setColor(getColor(R.color.chart_main));
@@ -153,6 +228,24 @@ public class LineChartView extends View {
 						return paint;
 					}
 				});		
+		
+		// Paths need a stroke-only style, or else they'd be filled in
+		mainStrokePaint = createStrokePaint(mainPaint);
+		secondaryStrokePaint = createStrokePaint(secondaryPaint);
+		tertiaryStrokePaint = createStrokePaint(tertiaryPaint);
+		linePaints = CollectionUtil.transform(linePaints, new Function<Paint, Paint>() {
+
+			@Override
+			public Paint apply(Paint paint) {
+				return createStrokePaint(paint);
+			}
+		});
+	}
+	
+	private static Paint createStrokePaint(Paint paint) {
+		Paint strokePaint = new Paint(paint);
+		strokePaint.setStyle(Style.STROKE);
+		return strokePaint;
 	}
 
 	/**
@@ -166,6 +259,7 @@ public class LineChartView extends View {
 		determineYAxisLabelInfo();
 		determineLegendInfo();
 		determineMainChartAreaWidth();
+		invalidateRenderCache();
 		invalidate();
 	}
 
@@ -233,7 +327,7 @@ public class LineChartView extends View {
 		legendWidth = maxTextWidth;
 	}
 	
-	private void determineMainChartAreaWidth() {
+	private int getMaxNumDataPoints() {
 		int maxNumDataPoints = 0;
 		for (LineChartLine line : data) {
 			int numDataPoints = line.getDataPoints().size();
@@ -241,8 +335,11 @@ public class LineChartView extends View {
 				maxNumDataPoints = numDataPoints;
 			}
 		}
-		
-		mainChartAreaWidth =  ((maxNumDataPoints - 1) * getItemWidth());
+		return maxNumDataPoints;
+	}
+	
+	private void determineMainChartAreaWidth() {
+		mainChartAreaWidth = Math.round((getMaxNumDataPoints() - 1) * getItemWidth());
 		
 		log.d("recalculated mainChartAreaWidth to %d", mainChartAreaWidth);
 	}
@@ -250,33 +347,263 @@ public class LineChartView extends View {
 
 	@Override
 	public void onDraw(Canvas canvas) {
-		if (data == null) {
+		if (data == null || getWidth() == 0 || getHeight() == 0) {
+			return;
+		}
+		
+		if (!renderCacheValid) {
+			buildRenderCache();
+		}
+		
+		if (pinching) {
+			drawPinchedTiles(canvas);
 			return;
 		}
 
+		// only draw the tiles that can actually be seen, i.e. the part of the chart scrolled into view
 		canvas.getClipBounds(bounds);
-
-		int height = bounds.bottom - (chartPadding * 2);
+		int firstTile = Math.max(0, bounds.left / TILE_WIDTH);
+		int lastTile = Math.min((getWidth() - 1) / TILE_WIDTH, (bounds.right - 1) / TILE_WIDTH);
+		
+		// keep the neighboring tiles around, since they're likely to be scrolled into view next
+		releaseTilesOutside(firstTile - 1, lastTile + 1);
+		
+		for (int i = firstTile; i <= lastTile; i++) {
+			Bitmap tile = tiles.get(i);
+			if (tile == null) {
+				tile = renderTile(i);
+				tiles.put(i, tile);
+			}
+			canvas.drawBitmap(tile, i * TILE_WIDTH, 0, null);
+		}
+	}
+	
+	/**
+	 * Draw the tiles as they were before the gesture started, scaled around the point where the fingers first came
+	 * down and then moved along with the fingers.  Tiles that haven't been rendered yet are left blank until the
+	 * gesture ends, rather than rendering them at a zoom level that's about to change.
+	 */
+	private void drawPinchedTiles(Canvas canvas) {
+		canvas.save();
+		canvas.translate(pinchFocusX, 0);
+		canvas.scale(pinchScale, 1);
+		canvas.translate(-pinchStartFocusX, 0);
+		
+		// i.e. the part of the unscaled chart that's now in view
+		canvas.getClipBounds(bounds);
+		int firstTile = Math.max(0, bounds.left / TILE_WIDTH);
+		int lastTile = Math.min((getWidth() - 1) / TILE_WIDTH, (bounds.right - 1) / TILE_WIDTH);
+		
+		for (int i = firstTile; i <= lastTile; i++) {
+			Bitmap tile = tiles.get(i);
+			if (tile != null) {
+				canvas.drawBitmap(tile, i * TILE_WIDTH, 0, null);
+			}
+		}
+		canvas.restore();
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		if (data == null) {
+			return super.onTouchEvent(event);
+		}
+		
+		switch (event.getAction() & MotionEvent.ACTION_MASK) {
+			case MotionEvent.ACTION_DOWN:
+				return true; // keep getting events, in case a second finger comes down
+			case MotionEvent.ACTION_POINTER_DOWN:
+				if (!pinching && event.getPointerCount() == 2) {
+					startPinch(event);
+				}
+				return true;
+			case MotionEvent.ACTION_MOVE:
+				if (pinching) {
+					updatePinch(event);
+				}
+				return true;
+			case MotionEvent.ACTION_POINTER_UP:
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL:
+				if (pinching) {
+					endPinch();
+				}
+				return true;
+		}
+		return super.onTouchEvent(event);
+	}
+	
+	private void startPinch(MotionEvent event) {
+		pinching = true;
+		pinchStartSpan = Math.max(touchSlop, Math.abs(event.getX(0) - event.getX(1)));
+		pinchStartFocusX = pinchFocusX = (event.getX(0) + event.getX(1)) / 2;
+		pinchScale = 1.0F;
+		
+		// don't let the scroll view take over the gesture
+		if (getParent() != null) {
+			getParent().requestDisallowInterceptTouchEvent(true);
+		}
+	}
+	
+	private void updatePinch(MotionEvent event) {
+		if (event.getPointerCount() < 2) {
+			return;
+		}
+		float span = Math.max(touchSlop, Math.abs(event.getX(0) - event.getX(1)));
+		float newZoomLevel = clampZoomLevel(zoomLevel * span / pinchStartSpan);
+		
+		pinchScale = newZoomLevel / zoomLevel;
+		pinchFocusX = (event.getX(0) + event.getX(1)) / 2;
+		invalidate();
+	}
+	
+	/**
+	 * Apply the gesture's zoom level for real, and scroll so that the point the fingers started on ends up wherever
+	 * the fingers ended up.
+	 */
+	private void endPinch() {
+		pinching = false;
+		
+		float oldItemWidth = getItemWidth();
+		setZoomLevel(clampZoomLevel(zoomLevel * pinchScale));
+		float ratio = getItemWidth() / oldItemWidth;
+		
+		int newFocusX = Math.round(chartOffsetX + (pinchStartFocusX - chartOffsetX) * ratio);
+		
+		ViewParent parent = getParent();
+		if (parent instanceof View) {
+			final View parentView = (View) parent;
+			final int scrollX = parentView.getScrollX() + newFocusX - Math.round(pinchFocusX);
+			
+			// wait until the new width has been laid out, since the scroll view can't scroll past it
+			post(new Runnable() {
+				
+				@Override
+				public void run() {
+					parentView.scrollTo(scrollX, parentView.getScrollY());
+				}
+			});
+		}
+		
+		requestLayout();
+		invalidate();
+		
+		if (onZoomChangedListener != null) {
+			onZoomChangedListener.onZoomChanged(zoomLevel);
+		}
+	}
+	
+	private float clampZoomLevel(float zoomLevel) {
+		return Math.max(getMinZoomLevel(), Math.min(MAX_ZOOM_LEVEL, zoomLevel));
+	}
+	
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		if (h != oldh) {
+			recycleTiles(); // wrong height now
+		}
+		invalidateRenderCache();
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		recycleTiles();
+		invalidateRenderCache();
+	}
+	
+	private void invalidateRenderCache() {
+		renderCacheValid = false;
+		releaseTilesOutside(0, -1);
+	}
+	
+	/**
+	 * Lay out the whole chart, which the tiles are then rendered from.
+	 */
+	private void buildRenderCache() {
+		
+		chartHeight = getHeight() - (chartPadding * 2);
+		
+		// initial padding, then the legend and the Y axis labels, each padded on the right
+		chartOffsetX = chartPadding + legendWidth + chartPadding + yAxisLabelWidth + chartPadding;
+		int offsetY = chartPadding;
+		
+		intervalPoints = determineIntervalPoints(chartHeight);
+		
+		buildBordersAndGrid(chartHeight, chartOffsetX, offsetY);
+		
+		// rounds that end up in the same pixel column at this zoom level only need to be drawn once
+		downsampledLines.clear();
+		for (LineChartLine line : data) {
+			downsampledLines.add(DownsampledLine.create(line.getDataPoints(), chartOffsetX, getItemWidth(), 
+					offsetY, chartHeight, minDataPoint, maxDataPoint));
+		}
+		
+		renderCacheValid = true;
+	}
+	
+	private Bitmap renderTile(int tileIndex) {
+		Bitmap tile;
+		if (unusedTiles.isEmpty()) {
+			tile = Bitmap.createBitmap(TILE_WIDTH, getHeight(), Bitmap.Config.ARGB_8888);
+		} else {
+			tile = unusedTiles.remove(unusedTiles.size() - 1);
+			tile.eraseColor(Color.TRANSPARENT);
+		}
+		
+		Canvas tileCanvas = new Canvas(tile);
+		tileCanvas.translate(-tileIndex * TILE_WIDTH, 0);
+		drawChart(tileCanvas, tileIndex * TILE_WIDTH, (tileIndex + 1) * TILE_WIDTH);
+		
+		return tile;
+	}
+	
+	/**
+	 * Set aside the tiles that aren't between the given indexes (inclusive), so they can be reused for other tiles.
+	 */
+	private void releaseTilesOutside(int firstTile, int lastTile) {
+		for (int i = tiles.size() - 1; i >= 0; i--) {
+			int tileIndex = tiles.keyAt(i);
+			if (tileIndex < firstTile || tileIndex > lastTile) {
+				Bitmap tile = tiles.valueAt(i);
+				tiles.removeAt(i);
+				if (unusedTiles.size() < MAX_UNUSED_TILES) {
+					unusedTiles.add(tile);
+				} else {
+					tile.recycle();
+				}
+			}
+		}
+	}
+	
+	private void recycleTiles() {
+		releaseTilesOutside(0, -1);
+		for (Bitmap tile : unusedTiles) {
+			tile.recycle();
+		}
+		unusedTiles.clear();
+	}
+	
+	/**
+	 * Draw the part of the chart between the given x coordinates.
+	 */
+	private void drawChart(Canvas canvas, int left, int right) {
 		
 		// initial padding
 		int offsetY = chartPadding;
 		int offsetX = chartPadding;
 		
-		drawLegendArea(canvas, height, offsetX, offsetY);
+		drawLegendArea(canvas, chartHeight, offsetX, offsetY);
 		
 		offsetX += legendWidth + chartPadding; //  pad on the right
 		
-		List<Integer> intervalPoints = determineIntervalPoints(canvas, height);
-		
-		drawYAxisLabel(canvas, height, offsetX, offsetY, intervalPoints);
+		drawYAxisLabel(canvas, chartHeight, offsetX, offsetY, intervalPoints);
 		
-		offsetX += yAxisLabelWidth + chartPadding; // pad on the right
-		
-		drawMainChartArea(canvas, height, offsetX, offsetY, intervalPoints);
-
+		drawMainChartArea(canvas, left, right);
 	}
 
-	private List<Integer> determineIntervalPoints(Canvas canvas, int height) {
+	private List<Integer> determineIntervalPoints(int height) {
 		// interval points are the points on the Y axis between the min and max values.
 		// It makes the chart easier to read
 		
@@ -360,45 +687,51 @@ public class LineChartView extends View {
 		
 	}
 
-	private void drawMainChartArea(Canvas canvas, int height, int offsetX, int offsetY, 
-			List<Integer> intervalPoints) {
+	private void drawMainChartArea(Canvas canvas, int left, int right) {
 
-		drawChartBordersAndGrid(canvas, height, offsetX, offsetY, intervalPoints);
+		canvas.drawPath(borderPath, mainStrokePaint);
+		
+		// vertical grid lines, for just the rounds in this part of the chart
+		float itemWidth = getItemWidth();
+		int roundsPerGridLine = Math.max(1, (int) Math.ceil(MIN_GRID_SPACING / itemWidth));
+		int firstRound = Math.max(1, (int) ((left - chartOffsetX) / itemWidth));
+		firstRound = ((firstRound + roundsPerGridLine - 1) / roundsPerGridLine) * roundsPerGridLine;
+		int lastRound = Math.min(maxLineDataPoints - 2, (int) ((right - chartOffsetX) / itemWidth) + 1);
+		for (int i = firstRound; i <= lastRound; i += roundsPerGridLine) {
+			float x = chartOffsetX + (i * itemWidth);
+			canvas.drawLine(x, chartPadding, x, chartHeight + chartPadding, secondaryStrokePaint);
+		}
+		
+		canvas.drawPath(horizontalGridPath, tertiaryStrokePaint);
 		
+		// include the points just outside, so the lines and dots crossing the edges are drawn too
+		int margin = dotRadius + lineWidth;
+		Path linePath = new Path();
 		for (int i = 0; i < data.size(); i++) {
-			LineChartLine line = data.get(i);
+			DownsampledLine line = downsampledLines.get(i);
+			if (line.size() == 0) {
+				continue;
+			}
 			Paint linePaint = linePaints.get(i % linePaints.size());
 			Paint lineLabelPaint = lineLabelPaints.get(i % lineLabelPaints.size());
-
-			int dataPointX = offsetX;
-			int previousDataPointX = 0;
-			int previousDataPointY = 0;
-			boolean first = true;
-			for (Integer dataPoint : line.getDataPoints()) {
-
-				// draw a dot
-				int dataPointY = offsetY
-						+ (int) Math.round(height - (((1.0 * dataPoint - minDataPoint) / (maxDataPoint - minDataPoint)) * height));
-				canvas.drawCircle(dataPointX, dataPointY, dotRadius, lineLabelPaint);
-
-				if (!first) {
-					// draw a line to the last data point
-					canvas.drawLine(previousDataPointX, previousDataPointY,
-							dataPointX, dataPointY, linePaint);
-				}
-
-				previousDataPointX = dataPointX;
-				previousDataPointY = dataPointY;
-				first = false;
-				dataPointX += getItemWidth();
+			
+			int first = line.findIndexBefore(left - margin);
+			int last = line.findIndexAfter(right + margin);
+			
+			linePath.rewind();
+			linePath.moveTo(line.getX(first), line.getY(first));
+			for (int j = first; j <= last; j++) {
+				// draw a dot, then a line to it from the last data point
+				canvas.drawCircle(line.getX(j), line.getY(j), dotRadius, lineLabelPaint);
+				linePath.lineTo(line.getX(j), line.getY(j));
 			}
+			canvas.drawPath(linePath, linePaint);
 		}
 	}
 
-	private void drawChartBordersAndGrid(Canvas canvas, int height, int offsetX, int offsetY, 
-			List<Integer> intervalPoints) {
+	private void buildBordersAndGrid(int height, int offsetX, int offsetY) {
 		
-		int maxLineDataPoints = CollectionUtil.max(data, new Function<LineChartLine,Integer>(){
+		maxLineDataPoints = CollectionUtil.max(data, new Function<LineChartLine,Integer>(){
 
 			@Override
 			public Integer apply(LineChartLine obj) {
@@ -406,39 +739,23 @@ public class LineChartView extends View {
 			}
 		});
 		
-		int edgeRight = offsetX + (getItemWidth() * (maxLineDataPoints - 1));
+		int edgeRight = offsetX + Math.round(getItemWidth() * (maxLineDataPoints - 1));
 		int edgeBottom = height + offsetY;
 		
-		// draw border lines at the top, right, bottom, and left
-		int[] topleft     = {offsetX, offsetY};
-		int[] topright    = {edgeRight, offsetY};
-		int[] bottomright = {edgeRight, edgeBottom};
-		int[] bottomleft  = {offsetX, edgeBottom};
-		
-		
-		// top
-		canvas.drawLine(topleft[0], topleft[1], topright[0], topright[1], mainPaint);
-		
-		// right
-		canvas.drawLine(topright[0], topright[1], bottomright[0], bottomright[1], mainPaint);
+		// border lines at the top, right, bottom, and left
+		borderPath = new Path();
+		borderPath.moveTo(offsetX, offsetY);
+		borderPath.lineTo(edgeRight, offsetY);
+		borderPath.lineTo(edgeRight, edgeBottom);
+		borderPath.lineTo(offsetX, edgeBottom);
+		borderPath.close();
 		
-		// bottom
-		canvas.drawLine(bottomright[0], bottomright[1], bottomleft[0], bottomleft[1], mainPaint);
-				
-		// left
-		canvas.drawLine(bottomleft[0], bottomleft[1], topleft[0], topleft[1], mainPaint);
-		
-		// draw vertical grid lines
-		
-		for (int i = 1; i < maxLineDataPoints - 1; i++) {
-			int x = offsetX + (i * getItemWidth());
-			canvas.drawLine(x, offsetY, x, height + offsetY, secondaryPaint);
-		}
-		
-		// draw horizontal grid lines
+		// horizontal grid lines
+		horizontalGridPath = new Path();
 		for (Integer intervalDataPoint : intervalPoints) {
 			int yLocation = getYLocationForIntervalPoint(intervalDataPoint, height);
-			canvas.drawLine(offsetX, yLocation, edgeRight, yLocation, tertiaryPaint);
+			horizontalGridPath.moveTo(offsetX, yLocation);
+			horizontalGridPath.lineTo(edgeRight, yLocation);
 		}
 		
 	}
@@ -457,7 +774,15 @@ public class LineChartView extends View {
 				
 		log.d("expected width is %d",expectedWidth);
 		
-		setMeasuredDimension(expectedWidth, heightMeasureSpec);
+		// the tiles are as tall as the view, so this has to be an actual size rather than a MeasureSpec
+		setMeasuredDimension(expectedWidth, MeasureSpec.getSize(heightMeasureSpec));
+	}
+	
+	/**
+	 * Listener for when the user changes the zoom level by pinching.
+	 */
+	public static interface OnZoomChangedListener {
+		void onZoomChanged(float zoomLevel);
 	}
 	
 }
@@ -0,0 +1,104 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+import com.nolanlawson.keepscore.MainActivity;
+import com.nolanlawson.keepscore.data.CollatedHistory;
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * Test that the running totals worked out from the checkpoints match simply adding up each player's history.
+ * @author nolan
+ *
+ */
+public class CollatedHistoryTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	private Random random = new Random(0);
+
+	public CollatedHistoryTest() {
+		super("com.nolanlawson.keepscore", MainActivity.class);
+	}
+
+	public void testEmptyHistory() {
+		CollatedHistory history = new CollatedHistory(Arrays.asList(createPlayerScore(7, 0)));
+
+		assertEquals(1, history.getNumRounds());
+		assertTrue(history.isStartingScore(0));
+		assertEquals(0, history.getDelta(0, 0));
+		assertEquals(7L, history.getRunningTotal(0, 0));
+		assertEquals(0L, history.getRoundSum(0));
+	}
+
+	public void testUnevenHistoriesAcrossCheckpoints() {
+		// lengths on either side of the checkpoints, so that every player ends at a different point
+		List<PlayerScore> playerScores = new ArrayList<PlayerScore>();
+		for (int numDeltas : new int[] { 0, 1, 31, 32, 33, 64, 100 }) {
+			playerScores.add(createPlayerScore(random.nextInt(100) - 50, numDeltas));
+		}
+		checkAgainstNaiveSums(playerScores);
+	}
+
+	public void testRandomHistories() {
+		for (int i = 0; i < 20; i++) {
+			List<PlayerScore> playerScores = new ArrayList<PlayerScore>();
+			int numPlayers = random.nextInt(8) + 1;
+			for (int player = 0; player < numPlayers; player++) {
+				playerScores.add(createPlayerScore(random.nextInt(100), random.nextInt(200)));
+			}
+			checkAgainstNaiveSums(playerScores);
+		}
+	}
+
+	private void checkAgainstNaiveSums(List<PlayerScore> playerScores) {
+		CollatedHistory history = new CollatedHistory(playerScores);
+
+		int maxRounds = 0;
+		for (PlayerScore playerScore : playerScores) {
+			maxRounds = Math.max(maxRounds, playerScore.getHistory().size() + 1);
+		}
+		assertEquals(playerScores.size(), history.getNumPlayers());
+		assertEquals(maxRounds, history.getNumRounds());
+
+		for (int round = 0; round < maxRounds; round++) {
+			long expectedRoundSum = 0;
+			for (int player = 0; player < playerScores.size(); player++) {
+				List<Integer> deltas = playerScores.get(player).getHistory();
+				boolean hasEntry = round <= deltas.size();
+				assertEquals(hasEntry, history.hasEntry(round, player));
+				if (!hasEntry) {
+					continue;
+				}
+
+				long expectedTotal = playerScores.get(player).getScore();
+				for (int i = round; i < deltas.size(); i++) {
+					expectedTotal -= deltas.get(i);
+				}
+				int expectedDelta = round == 0 ? 0 : deltas.get(round - 1);
+				assertEquals("round " + round + ", player " + player, expectedTotal,
+						history.getRunningTotal(round, player));
+				assertEquals(expectedDelta, history.getDelta(round, player));
+				expectedRoundSum += expectedDelta;
+			}
+			assertEquals(expectedRoundSum, history.getRoundSum(round));
+		}
+	}
+
+	private PlayerScore createPlayerScore(int startingScore, int numDeltas) {
+		List<Integer> deltas = new ArrayList<Integer>();
+		long score = startingScore;
+		for (int i = 0; i < numDeltas; i++) {
+			int delta = random.nextInt(41) - 20;
+			deltas.add(delta);
+			score += delta;
+		}
+		PlayerScore playerScore = new PlayerScore();
+		playerScore.setHistory(deltas);
+		playerScore.setScore(score);
+		return playerScore;
+	}
+}
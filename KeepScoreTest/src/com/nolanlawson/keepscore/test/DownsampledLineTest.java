@@ -0,0 +1,106 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+import com.nolanlawson.keepscore.MainActivity;
+import com.nolanlawson.keepscore.widget.chart.DownsampledLine;
+
+/**
+ * Test that the chart's lines keep every round when there's room for it, and otherwise only keep what can be seen
+ * in each pixel column.
+ * @author nolan
+ *
+ */
+public class DownsampledLineTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	private static final int OFFSET_X = 10;
+	private static final int OFFSET_Y = 5;
+	private static final int HEIGHT = 100;
+
+	private Random random = new Random(0);
+
+	public DownsampledLineTest() {
+		super("com.nolanlawson.keepscore", MainActivity.class);
+	}
+
+	public void testAllRoundsKeptWhenWide() {
+		List<Integer> dataPoints = Arrays.asList(0, 50, 100, 25);
+		DownsampledLine line = DownsampledLine.create(dataPoints, OFFSET_X, 2.5F, OFFSET_Y, HEIGHT, 0, 100);
+
+		assertEquals(4, line.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(OFFSET_X + i * 2.5F, line.getX(i), 0.001);
+		}
+		assertEquals(OFFSET_Y + HEIGHT, line.getY(0), 0.001); // lowest value at the bottom
+		assertEquals(OFFSET_Y, line.getY(2), 0.001); // highest value at the top
+	}
+
+	public void testRoundsMergedWhenNarrow() {
+		int numRounds = 10000;
+		float itemWidth = 0.01F; // 100 rounds per pixel column
+		List<Integer> dataPoints = createRandomWalk(numRounds);
+		DownsampledLine line = DownsampledLine.create(dataPoints, OFFSET_X, itemWidth, OFFSET_Y, HEIGHT, -1000, 1000);
+
+		int numColumns = (int) (OFFSET_X + (numRounds - 1) * itemWidth) - OFFSET_X + 1;
+		assertTrue(line.size() <= 4 * numColumns);
+
+		// the first and last rounds are kept, and the points stay in order
+		assertEquals(OFFSET_X, line.getX(0), 0.001);
+		assertEquals(OFFSET_X + (numRounds - 1) * itemWidth, line.getX(line.size() - 1), 0.001);
+		for (int i = 1; i < line.size(); i++) {
+			assertTrue(line.getX(i) > line.getX(i - 1));
+		}
+
+		// so are the peaks within each column
+		for (int column = OFFSET_X; column < OFFSET_X + numColumns; column++) {
+			int expectedMin = Integer.MAX_VALUE;
+			int expectedMax = Integer.MIN_VALUE;
+			for (int i = 0; i < numRounds; i++) {
+				if ((int) (OFFSET_X + i * itemWidth) == column) {
+					expectedMin = Math.min(expectedMin, dataPoints.get(i));
+					expectedMax = Math.max(expectedMax, dataPoints.get(i));
+				}
+			}
+			float lowestY = -Float.MAX_VALUE;
+			float highestY = Float.MAX_VALUE;
+			for (int i = 0; i < line.size(); i++) {
+				if ((int) line.getX(i) == column) {
+					lowestY = Math.max(lowestY, line.getY(i));
+					highestY = Math.min(highestY, line.getY(i));
+				}
+			}
+			assertEquals(toY(expectedMin, -1000, 1000), lowestY, 0.001);
+			assertEquals(toY(expectedMax, -1000, 1000), highestY, 0.001);
+		}
+	}
+
+	public void testFindIndex() {
+		List<Integer> dataPoints = Arrays.asList(1, 2, 3, 4, 5);
+		DownsampledLine line = DownsampledLine.create(dataPoints, OFFSET_X, 10, OFFSET_Y, HEIGHT, 0, 5);
+
+		assertEquals(0, line.findIndexBefore(0));
+		assertEquals(1, line.findIndexBefore(OFFSET_X + 15));
+		assertEquals(2, line.findIndexBefore(OFFSET_X + 20));
+		assertEquals(2, line.findIndexAfter(OFFSET_X + 15));
+		assertEquals(4, line.findIndexAfter(1000));
+	}
+
+	private List<Integer> createRandomWalk(int numRounds) {
+		List<Integer> result = new ArrayList<Integer>();
+		int value = 0;
+		for (int i = 0; i < numRounds; i++) {
+			value = Math.max(-1000, Math.min(1000, value + random.nextInt(21) - 10));
+			result.add(value);
+		}
+		return result;
+	}
+
+	private static float toY(int value, int minValue, int maxValue) {
+		return OFFSET_Y + Math.round(HEIGHT - (((1.0 * value - minValue) / (maxValue - minValue)) * HEIGHT));
+	}
+}
@@ -0,0 +1,123 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+import com.nolanlawson.keepscore.MainActivity;
+import com.nolanlawson.keepscore.data.GameEventLog;
+import com.nolanlawson.keepscore.data.GameEventLog.PendingSave;
+import com.nolanlawson.keepscore.data.RecordedChange;
+import com.nolanlawson.keepscore.data.RecordedChange.Type;
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * Test to make sure that recording, undoing and redoing changes through the GameEventLog keeps the PlayerScores
+ * consistent.
+ * @author nolan
+ *
+ */
+public class EventLogTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	private Game game;
+	private PlayerScore playerScore;
+
+	public EventLogTest() {
+		super("com.nolanlawson.keepscore", MainActivity.class);
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		playerScore = new PlayerScore();
+		playerScore.setHistory(new ArrayList<Integer>());
+		game = new Game();
+		game.setPlayerScores(new ArrayList<PlayerScore>(Arrays.asList(playerScore)));
+	}
+
+	public void testUndoRedo() {
+		GameEventLog eventLog = new GameEventLog(game, 10);
+
+		eventLog.record(new RecordedChange(0, Type.AddNew, 5));
+		eventLog.record(new RecordedChange(0, Type.ModifyLast, 2));
+		eventLog.record(new RecordedChange(0, Type.AddNew, 1));
+
+		assertEquals(Arrays.asList(7, 1), playerScore.getHistory());
+		assertEquals(8L, playerScore.getScore());
+		assertEquals(3, game.getEventSequence());
+
+		eventLog.undo();
+		eventLog.undo();
+		assertEquals(Arrays.asList(5), playerScore.getHistory());
+		assertEquals(5L, playerScore.getScore());
+		assertEquals(1, game.getEventSequence());
+
+		eventLog.redo();
+		assertEquals(Arrays.asList(7), playerScore.getHistory());
+		assertTrue(eventLog.canRedo());
+
+		// recording a new change discards the redo
+		eventLog.record(new RecordedChange(0, Type.DeleteLast, 7));
+		assertFalse(eventLog.canRedo());
+		assertTrue(playerScore.getHistory().isEmpty());
+		assertEquals(0L, playerScore.getScore());
+		assertEquals(3, game.getEventSequence());
+	}
+
+	public void testUnpersistedChanges() {
+		GameEventLog eventLog = new GameEventLog(game, 10);
+
+		eventLog.record(new RecordedChange(0, Type.AddNew, 5));
+		eventLog.record(new RecordedChange(0, Type.AddNew, 3));
+		assertEquals(1, eventLog.getFirstUnpersistedSequence());
+		assertEquals(2, eventLog.getUnpersistedChanges().size());
+
+		eventLog.markPersisted();
+		assertTrue(eventLog.getUnpersistedChanges().isEmpty());
+
+		// undoing below the last snapshot and then branching requires a new snapshot
+		game.setSnapshotSequence(2);
+		eventLog.undo();
+		eventLog.record(new RecordedChange(0, Type.AddNew, 4));
+		assertEquals(2, eventLog.getFirstUnpersistedSequence());
+		assertTrue(eventLog.isSnapshotRequired());
+	}
+
+	public void testChangesDuringSave() {
+		GameEventLog eventLog = new GameEventLog(game, 10);
+
+		eventLog.record(new RecordedChange(0, Type.AddNew, 5));
+		eventLog.record(new RecordedChange(0, Type.AddNew, 3));
+		PendingSave pendingSave = eventLog.prepareSave();
+		assertEquals(2, pendingSave.getUnpersistedChanges().size());
+
+		// recorded while the save is running, so not part of it
+		eventLog.record(new RecordedChange(0, Type.AddNew, 1));
+		pendingSave.getGame().setId(7);
+		eventLog.markPersisted(pendingSave);
+		assertEquals(7, game.getId());
+		assertEquals(3, eventLog.getFirstUnpersistedSequence());
+		assertEquals(1, eventLog.getUnpersistedChanges().size());
+		assertEquals(1, eventLog.getUnpersistedChanges().get(0).getValue());
+
+		// undone and overwritten while the save is running, so the saved change no longer counts
+		pendingSave = eventLog.prepareSave();
+		eventLog.undo();
+		eventLog.undo();
+		eventLog.record(new RecordedChange(0, Type.AddNew, 2));
+		eventLog.markPersisted(pendingSave);
+		assertEquals(2, eventLog.getFirstUnpersistedSequence());
+		assertEquals(Arrays.asList(5, 2), playerScore.getHistory());
+
+		// a snapshot that included the overwritten change has to be written again
+		pendingSave = eventLog.prepareSave();
+		pendingSave.getGame().setSnapshotSequence(2);
+		pendingSave.setSnapshotWritten(true);
+		eventLog.undo();
+		eventLog.record(new RecordedChange(0, Type.AddNew, 4));
+		eventLog.markPersisted(pendingSave);
+		assertEquals(2, game.getSnapshotSequence());
+		assertTrue(eventLog.isSnapshotRequired());
+	}
+}
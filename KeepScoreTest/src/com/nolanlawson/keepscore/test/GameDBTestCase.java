@@ -0,0 +1,139 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import android.content.Context;
+import android.test.ActivityInstrumentationTestCase2;
+import android.test.RenamingDelegatingContext;
+
+import com.nolanlawson.keepscore.MainActivity;
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.GameDBHelper;
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * Base class for tests that save games to the database.  Each test gets its own empty copy of the database, so the
+ * real saved games aren't touched, and the games it saves are kept in {@link #games} to check the database against.
+ * @author nolan
+ *
+ */
+public abstract class GameDBTestCase extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	protected static final String DB_NAME = "games.db";
+	protected static final String[] NAMES = { "Alice", "Bob", "Carol", "Dave", "Eve", "Frank" };
+
+	protected Random random = new Random(0);
+	protected Context context;
+	protected GameDBHelper dbHelper;
+	protected List<Game> games = new ArrayList<Game>();
+	private long dateStarted = 1000000L;
+
+	public GameDBTestCase() {
+		super("com.nolanlawson.keepscore", MainActivity.class);
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		context = new RenamingDelegatingContext(getInstrumentation().getTargetContext(), "test_");
+		context.deleteDatabase(DB_NAME);
+		dbHelper = new GameDBHelper(context);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		dbHelper.close();
+		context.deleteDatabase(DB_NAME);
+		super.tearDown();
+	}
+
+	protected Game saveNewGame(Game game) {
+		dbHelper.saveGame(game);
+		games.add(game);
+		return game;
+	}
+
+	protected void deleteGame(Game game) {
+		dbHelper.deleteGame(game);
+		games.remove(game);
+	}
+
+	/**
+	 * Create a game started just after the last one.
+	 *
+	 * @param namesAndScores
+	 *            alternating names and scores
+	 */
+	protected Game createGame(Object... namesAndScores) {
+		return createGameStartedAt(dateStarted++, namesAndScores);
+	}
+
+	/**
+	 * @param namesAndScores
+	 *            alternating names and scores
+	 */
+	protected Game createGameStartedAt(long dateStarted, Object... namesAndScores) {
+		List<PlayerScore> playerScores = new ArrayList<PlayerScore>();
+		for (int i = 0; i < namesAndScores.length; i += 2) {
+			PlayerScore playerScore = new PlayerScore();
+			playerScore.setName((String) namesAndScores[i]);
+			playerScore.setScore((Integer) namesAndScores[i + 1]);
+			playerScore.setHistory(new ArrayList<Integer>(Collections.nCopies(random.nextInt(5), 0)));
+			playerScore.setPlayerNumber(i / 2);
+			playerScores.add(playerScore);
+		}
+		Game game = new Game();
+		game.setDateStarted(dateStarted);
+		game.setPlayerScores(playerScores);
+		return game;
+	}
+
+	/**
+	 * Create a game of 2 to 5 players with a few rounds each.  Some players are unnamed, and some names differ from
+	 * {@link #NAMES} in case and spacing.
+	 */
+	protected Game createRandomGame(long dateStarted) {
+		List<String> names = new ArrayList<String>(Arrays.asList(NAMES));
+		Collections.shuffle(names, random);
+		int numPlayers = random.nextInt(4) + 2;
+
+		List<PlayerScore> playerScores = new ArrayList<PlayerScore>();
+		for (int i = 0; i < numPlayers; i++) {
+			PlayerScore playerScore = new PlayerScore();
+			String name = names.get(i);
+			int variant = random.nextInt(6);
+			playerScore.setName(variant == 0 ? "" : variant == 1 ? " " + name.toUpperCase(Locale.US) + " " : name);
+			List<Integer> history = new ArrayList<Integer>();
+			long score = 0;
+			for (int round = random.nextInt(6); round > 0; round--) {
+				int delta = random.nextInt(11);
+				history.add(delta);
+				score += delta;
+			}
+			playerScore.setHistory(history);
+			playerScore.setScore(score);
+			playerScore.setPlayerNumber(i);
+			playerScores.add(playerScore);
+		}
+		Game game = new Game();
+		game.setDateStarted(dateStarted);
+		game.setPlayerScores(playerScores);
+		return game;
+	}
+
+	/**
+	 * @return the date the next game from {@link #createGame(Object...)} will start
+	 */
+	protected long getNextDateStarted() {
+		return dateStarted;
+	}
+
+	protected static String toPlayerKey(String name) {
+		return name.trim().toLowerCase(Locale.US);
+	}
+}
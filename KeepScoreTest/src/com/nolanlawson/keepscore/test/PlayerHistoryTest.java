@@ -0,0 +1,133 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerGameStats;
+import com.nolanlawson.keepscore.db.PlayerScore;
+
+/**
+ * Test that a player's game history, which is read from the per-game statistics, lists every game they played in
+ * the order the games were started, with the scores they had in the saved games.
+ * @author nolan
+ *
+ */
+public class PlayerHistoryTest extends GameDBTestCase {
+
+	public void testOrderAndValues() {
+		saveNewGame(createGameStartedAt(300, "Alice", 10, "Bob", 5));
+		saveNewGame(createGameStartedAt(100, " alice ", 2, "Carol", 7));
+		saveNewGame(createGameStartedAt(400, "Bob", 1, "Carol", 2));
+
+		// started at the same time, so the one saved first comes first
+		saveNewGame(createGameStartedAt(200, "Bob", 3, "ALICE", 3));
+		saveNewGame(createGameStartedAt(200, "Alice", 8, "Dave", 1));
+
+		List<PlayerGameStats> history = dbHelper.findPlayerGameHistory("Alice");
+		assertEquals(4, history.size());
+		assertEquals(100L, history.get(0).getDateStarted());
+		assertEquals("alice", history.get(0).getName());
+		assertEquals(2L, history.get(0).getScore());
+		assertFalse(history.get(0).isWon());
+		assertEquals("ALICE", history.get(1).getName());
+		assertEquals(8L, history.get(2).getScore());
+		assertTrue(history.get(2).isWon());
+		assertEquals(300L, history.get(3).getDateStarted());
+		checkHistory();
+	}
+
+	public void testLookupIgnoresCaseAndSpacing() {
+		saveNewGame(createGame("Alice", 10, "Bob", 5));
+		saveNewGame(createGame("Bob", 4, " alice", 6));
+
+		List<PlayerGameStats> expected = dbHelper.findPlayerGameHistory("alice");
+		assertEquals(2, expected.size());
+		for (String name : new String[] { "ALICE", " Alice ", "aLiCe\t" }) {
+			List<PlayerGameStats> history = dbHelper.findPlayerGameHistory(name);
+			assertEquals(name, expected.size(), history.size());
+			for (int i = 0; i < history.size(); i++) {
+				assertStatsEqual(expected.get(i), history.get(i));
+			}
+		}
+	}
+
+	public void testEmptyHistory() {
+		assertTrue(dbHelper.findPlayerGameHistory("Alice").isEmpty());
+
+		Game game = saveNewGame(createGame("Alice", 10, "", 5));
+		assertTrue(dbHelper.findPlayerGameHistory("Bob").isEmpty());
+
+		// unnamed players don't have a history
+		assertTrue(dbHelper.findPlayerGameHistory("").isEmpty());
+		assertTrue(dbHelper.findPlayerGameHistory("  ").isEmpty());
+		assertTrue(dbHelper.findPlayerGameHistory(null).isEmpty());
+
+		deleteGame(game);
+		assertTrue(dbHelper.findPlayerGameHistory("Alice").isEmpty());
+	}
+
+	public void testRandomSavesEditsAndDeletes() {
+		for (int i = 0; i < 60; i++) {
+			int action = games.isEmpty() ? 0 : random.nextInt(3);
+			if (action == 0) {
+				// every game starts at a different time, since edited games are saved again in a new order
+				saveNewGame(createRandomGame(random.nextInt(1000) * 100 + i));
+			} else if (action == 1) {
+				Game game = games.get(random.nextInt(games.size()));
+				for (PlayerScore playerScore : game.getPlayerScores()) {
+					int delta = random.nextInt(11) - 5;
+					playerScore.getHistory().add(delta);
+					playerScore.setScore(playerScore.getScore() + delta);
+				}
+				dbHelper.saveGame(game);
+			} else {
+				deleteGame(games.get(random.nextInt(games.size())));
+			}
+			checkHistory();
+		}
+	}
+
+	/**
+	 * Check every player's history against their statistics from each saved game, in the order the games were
+	 * started, or saved if they were started at the same time.
+	 */
+	private void checkHistory() {
+		for (String name : NAMES) {
+			List<PlayerGameStats> expected = new ArrayList<PlayerGameStats>();
+			for (Game game : games) {
+				for (PlayerGameStats stats : PlayerGameStats.fromGame(game)) {
+					if (stats.getPlayerKey().equals(toPlayerKey(name))) {
+						expected.add(stats);
+					}
+				}
+			}
+			Collections.sort(expected, new Comparator<PlayerGameStats>() {
+
+				@Override
+				public int compare(PlayerGameStats lhs, PlayerGameStats rhs) {
+					return lhs.getDateStarted() < rhs.getDateStarted() ? -1
+							: lhs.getDateStarted() > rhs.getDateStarted() ? 1 : 0;
+				}
+			});
+
+			List<PlayerGameStats> actual = dbHelper.findPlayerGameHistory(name);
+			assertEquals(name, expected.size(), actual.size());
+			for (int i = 0; i < actual.size(); i++) {
+				assertStatsEqual(expected.get(i), actual.get(i));
+			}
+		}
+	}
+
+	private static void assertStatsEqual(PlayerGameStats expected, PlayerGameStats actual) {
+		String message = expected.toString();
+		assertEquals(message, expected.getPlayerKey(), actual.getPlayerKey());
+		assertEquals(message, expected.getName(), actual.getName());
+		assertEquals(message, expected.getScore(), actual.getScore());
+		assertEquals(message, expected.getRounds(), actual.getRounds());
+		assertEquals(message, expected.isWon(), actual.isWon());
+		assertEquals(message, expected.getDateStarted(), actual.getDateStarted());
+	}
+}
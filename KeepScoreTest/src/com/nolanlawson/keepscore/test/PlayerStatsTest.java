@@ -0,0 +1,186 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerScore;
+import com.nolanlawson.keepscore.db.PlayerStats;
+
+/**
+ * Test that the player statistics, which are updated a game at a time as games are saved and deleted, always match
+ * the totals worked out from scratch from the saved games.
+ * @author nolan
+ *
+ */
+public class PlayerStatsTest extends GameDBTestCase {
+
+	public void testBestScoreAfterDeletingBestGame() {
+		Game first = saveNewGame(createGame("Alice", 10, "Bob", 5));
+		Game best = saveNewGame(createGame("Alice", 30, "Bob", 40));
+		saveNewGame(createGame("Alice", 20, "Bob", 15));
+
+		assertEquals(30L, findStats("alice").getBestScore());
+		assertEquals(40L, findStats("bob").getBestScore());
+
+		deleteGame(best);
+		assertEquals(20L, findStats("alice").getBestScore());
+		assertEquals(15L, findStats("bob").getBestScore());
+		checkStats();
+
+		// and again when the best score is only lowered by editing the game
+		first.getPlayerScores().get(0).setScore(1);
+		dbHelper.saveGame(first);
+		assertEquals(20L, findStats("alice").getBestScore());
+		checkStats();
+	}
+
+	public void testPlayerRemovedWhenNoGamesLeft() {
+		Game game1 = saveNewGame(createGame("Alice", 10, "Bob", 5));
+		Game game2 = saveNewGame(createGame("Alice", 3, "Carol", 7));
+
+		deleteGame(game2);
+		assertNull(findStats("carol"));
+		assertEquals(1, findStats("alice").getGamesPlayed());
+		checkStats();
+
+		// renaming a player takes them out of the game just the same
+		game1.getPlayerScores().get(1).setName("Dave");
+		dbHelper.saveGame(game1);
+		assertNull(findStats("bob"));
+		assertEquals(1, findStats("dave").getGamesPlayed());
+		checkStats();
+
+		dbHelper.deleteGames(Arrays.asList(game1.getId()));
+		games.remove(game1);
+		assertTrue(dbHelper.findAllPlayerStats().isEmpty());
+	}
+
+	public void testWinnerChangesWithLeader() {
+		Game game = saveNewGame(createGame("Alice", 10, "Bob", 5, "Carol", 5));
+		assertEquals(1, findStats("alice").getWins());
+		assertEquals(0, findStats("bob").getWins());
+		assertEquals(0, findStats("carol").getWins());
+
+		game.getPlayerScores().get(1).setScore(20);
+		dbHelper.saveGame(game);
+		assertEquals(0, findStats("alice").getWins());
+		assertEquals(1, findStats("bob").getWins());
+		assertEquals(0, findStats("carol").getWins());
+		checkStats();
+
+		// a tie for the lead is a win for both
+		game.getPlayerScores().get(2).setScore(20);
+		dbHelper.saveGame(game);
+		assertEquals(0, findStats("alice").getWins());
+		assertEquals(1, findStats("bob").getWins());
+		assertEquals(1, findStats("carol").getWins());
+		checkStats();
+
+		// but nobody wins if everybody is tied
+		game.getPlayerScores().get(0).setScore(20);
+		dbHelper.saveGame(game);
+		for (String playerKey : Arrays.asList("alice", "bob", "carol")) {
+			assertEquals(0, findStats(playerKey).getWins());
+		}
+		checkStats();
+	}
+
+	public void testRandomSavesEditsAndDeletes() {
+		for (int i = 0; i < 60; i++) {
+			int action = games.isEmpty() ? 0 : random.nextInt(4);
+			if (action == 0) {
+				saveNewGame(createRandomGame(getNextDateStarted() + random.nextInt(1000) - 500));
+			} else if (action == 1) {
+				// change some scores and add a round
+				Game game = games.get(random.nextInt(games.size()));
+				for (PlayerScore playerScore : game.getPlayerScores()) {
+					int delta = random.nextInt(21) - 5;
+					playerScore.getHistory().add(delta);
+					playerScore.setScore(playerScore.getScore() + delta);
+				}
+				dbHelper.saveGame(game);
+			} else if (action == 2) {
+				// rename a player, sometimes to nobody
+				Game game = games.get(random.nextInt(games.size()));
+				PlayerScore playerScore = game.getPlayerScores().get(random.nextInt(game.getPlayerScores().size()));
+				playerScore.setName(random.nextInt(4) == 0 ? "" : pickUnusedName(game));
+				dbHelper.saveGame(game);
+			} else {
+				deleteGame(games.get(random.nextInt(games.size())));
+			}
+			checkStats();
+		}
+	}
+
+	/**
+	 * Check the stored statistics against the totals worked out from the games themselves.
+	 */
+	private void checkStats() {
+		Map<String, PlayerStats> expected = new HashMap<String, PlayerStats>();
+		for (Game game : games) {
+			long maxScore = Long.MIN_VALUE;
+			long minScore = Long.MAX_VALUE;
+			for (PlayerScore playerScore : game.getPlayerScores()) {
+				maxScore = Math.max(maxScore, playerScore.getScore());
+				minScore = Math.min(minScore, playerScore.getScore());
+			}
+			for (PlayerScore playerScore : game.getPlayerScores()) {
+				if (playerScore.getName() == null || playerScore.getName().trim().length() == 0) {
+					continue;
+				}
+				String playerKey = toPlayerKey(playerScore.getName());
+				PlayerStats stats = expected.get(playerKey);
+				if (stats == null) {
+					stats = new PlayerStats();
+					stats.setBestScore(Long.MIN_VALUE);
+					expected.put(playerKey, stats);
+				}
+				stats.setGamesPlayed(stats.getGamesPlayed() + 1);
+				stats.setWins(stats.getWins() + (playerScore.getScore() == maxScore && maxScore > minScore ? 1 : 0));
+				stats.setTotalScore(stats.getTotalScore() + playerScore.getScore());
+				stats.setBestScore(Math.max(stats.getBestScore(), playerScore.getScore()));
+				stats.setTotalRounds(stats.getTotalRounds() + playerScore.getHistory().size());
+			}
+		}
+
+		List<PlayerStats> actual = dbHelper.findAllPlayerStats();
+		assertEquals(expected.size(), actual.size());
+		for (PlayerStats stats : actual) {
+			String playerKey = toPlayerKey(stats.getName());
+			PlayerStats expectedStats = expected.get(playerKey);
+			assertNotNull(playerKey, expectedStats);
+			assertEquals(playerKey, expectedStats.getGamesPlayed(), stats.getGamesPlayed());
+			assertEquals(playerKey, expectedStats.getWins(), stats.getWins());
+			assertEquals(playerKey, expectedStats.getTotalScore(), stats.getTotalScore());
+			assertEquals(playerKey, expectedStats.getBestScore(), stats.getBestScore());
+			assertEquals(playerKey, expectedStats.getTotalRounds(), stats.getTotalRounds());
+		}
+	}
+
+	private PlayerStats findStats(String playerKey) {
+		for (PlayerStats stats : dbHelper.findAllPlayerStats()) {
+			if (toPlayerKey(stats.getName()).equals(playerKey)) {
+				return stats;
+			}
+		}
+		return null;
+	}
+
+	private String pickUnusedName(Game game) {
+		List<String> names = new ArrayList<String>();
+		for (String name : NAMES) {
+			boolean used = false;
+			for (PlayerScore playerScore : game.getPlayerScores()) {
+				used |= playerScore.getName() != null && toPlayerKey(playerScore.getName()).equals(toPlayerKey(name));
+			}
+			if (!used) {
+				names.add(name);
+			}
+		}
+		return names.isEmpty() ? "" : names.get(random.nextInt(names.size()));
+	}
+}
@@ -0,0 +1,176 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+import com.nolanlawson.keepscore.MainActivity;
+import com.nolanlawson.keepscore.data.RatingEngine;
+import com.nolanlawson.keepscore.db.PlayerGameStats;
+
+/**
+ * Tests for the Elo-style ratings of a single game.
+ * @author nolan
+ *
+ */
+public class RatingEngineTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	private static final double DELTA = 0.000001;
+
+	private Random random = new Random(0);
+
+	public RatingEngineTest() {
+		super("com.nolanlawson.keepscore", MainActivity.class);
+	}
+
+	public void testWinAndLoss() {
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.rateGame(createGame("a", 10, "b", 5));
+
+		// evenly matched, so the winner gains half the K factor and the loser loses the same
+		assertEquals(RatingEngine.INITIAL_RATING + 16, ratingEngine.getRating("a"), DELTA);
+		assertEquals(RatingEngine.INITIAL_RATING - 16, ratingEngine.getRating("b"), DELTA);
+
+		// beating a weaker player earns less than losing to them costs
+		ratingEngine.rateGame(createGame("a", 10, "b", 5));
+		double gain = ratingEngine.getRating("a") - (RatingEngine.INITIAL_RATING + 16);
+		ratingEngine.rateGame(createGame("a", 5, "b", 10));
+		double loss = (RatingEngine.INITIAL_RATING + 16 + gain) - ratingEngine.getRating("a");
+		assertTrue(gain > 0 && gain < 16);
+		assertTrue(loss > 16);
+	}
+
+	public void testTie() {
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.setRating("a", 1600);
+		ratingEngine.setRating("b", 1400);
+		ratingEngine.rateGame(createGame("a", 7, "b", 7, "c", 0));
+
+		// a draw against a weaker player is worth less to the stronger one
+		assertTrue(ratingEngine.getRating("a") - 1600 < ratingEngine.getRating("b") - 1400);
+		assertTrue(ratingEngine.getRating("c") < RatingEngine.INITIAL_RATING);
+		assertEquals(1600 + 1400 + RatingEngine.INITIAL_RATING, sumOfRatings(ratingEngine), DELTA);
+
+		// and evenly matched players who draw stay where they are
+		ratingEngine = new RatingEngine();
+		ratingEngine.rateGame(createGame("a", 7, "b", 7, "c", 0));
+		assertEquals(ratingEngine.getRating("a"), ratingEngine.getRating("b"), DELTA);
+		assertEquals(RatingEngine.INITIAL_RATING + 8, ratingEngine.getRating("a"), DELTA);
+	}
+
+	public void testAllTied() {
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.setRating("a", 1600);
+		ratingEngine.rateGame(createGame("a", 3, "b", 3, "c", 3));
+
+		assertEquals(1600, ratingEngine.getRating("a"), DELTA);
+		assertFalse(ratingEngine.hasRating("b"));
+		assertFalse(ratingEngine.hasRating("c"));
+		assertEquals(1, ratingEngine.getRatings().size());
+	}
+
+	public void testSinglePlayer() {
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.rateGame(createGame("a", 10));
+		ratingEngine.rateGame(new ArrayList<PlayerGameStats>());
+
+		assertFalse(ratingEngine.hasRating("a"));
+		assertTrue(ratingEngine.getRatings().isEmpty());
+	}
+
+	public void testManyPlayers() {
+		// beating three evenly matched players is worth the same as beating one
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.rateGame(createGame("a", 10, "b", 5, "c", 5, "d", 5));
+		assertEquals(RatingEngine.INITIAL_RATING + 16, ratingEngine.getRating("a"), DELTA);
+		assertEquals(RatingEngine.INITIAL_RATING - 16.0 / 3, ratingEngine.getRating("b"), DELTA);
+
+		// finishing ahead of more players earns more
+		ratingEngine = new RatingEngine();
+		ratingEngine.rateGame(createGame("a", 4, "b", 3, "c", 2, "d", 1));
+		assertTrue(ratingEngine.getRating("a") > ratingEngine.getRating("b"));
+		assertTrue(ratingEngine.getRating("b") > RatingEngine.INITIAL_RATING);
+		assertTrue(ratingEngine.getRating("c") < RatingEngine.INITIAL_RATING);
+		assertTrue(ratingEngine.getRating("c") > ratingEngine.getRating("d"));
+	}
+
+	public void testRandomGames() {
+		RatingEngine ratingEngine = new RatingEngine();
+		List<String> playerKeys = new ArrayList<String>();
+		for (int i = 0; i < 8; i++) {
+			playerKeys.add("player" + i);
+		}
+		for (int i = 0; i < 200; i++) {
+			Collections.shuffle(playerKeys, random);
+			List<PlayerGameStats> game = new ArrayList<PlayerGameStats>();
+			for (String playerKey : playerKeys.subList(0, random.nextInt(7) + 2)) {
+				game.add(createStats(playerKey, random.nextInt(5)));
+			}
+
+			double sumBefore = sumOfRatings(ratingEngine, game);
+			ratingEngine.rateGame(game);
+
+			// whatever one player gains, the others lose
+			assertEquals(sumBefore, sumOfRatings(ratingEngine, game), DELTA);
+		}
+	}
+
+	public void testOrderWithinGame() {
+		List<PlayerGameStats> game = createGame("a", 9, "b", 4, "c", 4, "d", 1, "e", 12);
+		RatingEngine ratingEngine = new RatingEngine();
+		ratingEngine.setRating("b", 1550);
+		ratingEngine.setRating("d", 1420);
+		ratingEngine.rateGame(game);
+
+		List<PlayerGameStats> reversed = new ArrayList<PlayerGameStats>(game);
+		Collections.reverse(reversed);
+		RatingEngine otherRatingEngine = new RatingEngine();
+		otherRatingEngine.setRating("b", 1550);
+		otherRatingEngine.setRating("d", 1420);
+		otherRatingEngine.rateGame(reversed);
+
+		for (PlayerGameStats stats : game) {
+			assertEquals(ratingEngine.getRating(stats.getPlayerKey()),
+					otherRatingEngine.getRating(stats.getPlayerKey()), DELTA);
+		}
+	}
+
+	private static double sumOfRatings(RatingEngine ratingEngine) {
+		double sum = 0;
+		for (double rating : ratingEngine.getRatings().values()) {
+			sum += rating;
+		}
+		return sum;
+	}
+
+	private static double sumOfRatings(RatingEngine ratingEngine, List<PlayerGameStats> game) {
+		double sum = 0;
+		for (PlayerGameStats stats : game) {
+			sum += ratingEngine.getRating(stats.getPlayerKey());
+		}
+		return sum;
+	}
+
+	/**
+	 * @param keysAndScores
+	 *            alternating player keys and scores
+	 */
+	private static List<PlayerGameStats> createGame(Object... keysAndScores) {
+		List<PlayerGameStats> result = new ArrayList<PlayerGameStats>();
+		for (int i = 0; i < keysAndScores.length; i += 2) {
+			result.add(createStats((String) keysAndScores[i], (Integer) keysAndScores[i + 1]));
+		}
+		return result;
+	}
+
+	private static PlayerGameStats createStats(String playerKey, long score) {
+		PlayerGameStats stats = new PlayerGameStats();
+		stats.setPlayerKey(playerKey);
+		stats.setName(playerKey);
+		stats.setScore(score);
+		return stats;
+	}
+}
@@ -0,0 +1,179 @@
+package com.nolanlawson.keepscore.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nolanlawson.keepscore.data.RatingEngine;
+import com.nolanlawson.keepscore.db.Game;
+import com.nolanlawson.keepscore.db.PlayerGameStats;
+import com.nolanlawson.keepscore.db.PlayerScore;
+import com.nolanlawson.keepscore.db.PlayerStats;
+
+/**
+ * Test that the stored ratings, which are only replayed from the earliest game that's changed, always match the
+ * ratings worked out from scratch by rating every saved game in order.
+ * @author nolan
+ *
+ */
+public class RatingReplayTest extends GameDBTestCase {
+
+	private static final double DELTA = 0.000001;
+
+	public void testReplayAfterInsert() {
+		saveNewGame(createGameStartedAt(100, "Alice", 10, "Bob", 5));
+		saveNewGame(createGameStartedAt(200, "Bob", 10, "Carol", 5));
+		checkRatings();
+
+		// after the last rated game
+		saveNewGame(createGameStartedAt(300, "Alice", 3, "Carol", 8, "Dave", 1));
+		checkRatings();
+
+		// in between rated games, and at the same time as one, so the id decides the order
+		saveNewGame(createGameStartedAt(150, "Carol", 20, "Alice", 0));
+		saveNewGame(createGameStartedAt(200, "Alice", 1, "Dave", 2));
+		checkRatings();
+	}
+
+	public void testReplayAfterEdit() {
+		Game game = saveNewGame(createGameStartedAt(100, "Alice", 10, "Bob", 5));
+		saveNewGame(createGameStartedAt(200, "Alice", 10, "Bob", 5));
+		checkRatings();
+
+		// the first game now goes the other way, which changes what the second one is worth
+		game.getPlayerScores().get(1).setScore(50);
+		dbHelper.saveGame(game);
+		checkRatings();
+
+		// and now nobody wins it
+		game.getPlayerScores().get(0).setScore(50);
+		dbHelper.saveGame(game);
+		checkRatings();
+	}
+
+	public void testReplayAfterDelete() {
+		saveNewGame(createGameStartedAt(100, "Alice", 10, "Eve", 5));
+		Game middle = saveNewGame(createGameStartedAt(200, "Eve", 10, "Bob", 5, "Frank", 1));
+		saveNewGame(createGameStartedAt(300, "Alice", 10, "Bob", 5));
+		checkRatings();
+
+		// Eve's rating goes back to what it was after the first game, since she's in no later games, and Frank is
+		// gone altogether
+		deleteGame(middle);
+		checkRatings();
+		assertNull(findRating("frank"));
+
+		// and everybody's goes back to the start when all of their games are gone
+		List<Integer> gameIds = new ArrayList<Integer>();
+		for (Game game : games) {
+			gameIds.add(game.getId());
+		}
+		dbHelper.deleteGames(gameIds);
+		games.clear();
+		checkRatings();
+	}
+
+	public void testBackdatedRestore() {
+		saveNewGame(createGameStartedAt(1000, "Alice", 10, "Bob", 5));
+		saveNewGame(createGameStartedAt(2000, "Bob", 10, "Carol", 5));
+		saveNewGame(createGameStartedAt(3000, "Carol", 10, "Alice", 5));
+		checkRatings();
+
+		// restored from a backup, keeping their original dates, with the later one restored first so that the
+		// replay has to start from the earlier one
+		Game restored1 = createGameStartedAt(1500, "Alice", 0, "Carol", 9, "Dave", 3);
+		restored1.setDateSaved(1500);
+		dbHelper.saveGame(restored1, false);
+		games.add(restored1);
+		Game restored2 = createGameStartedAt(500, "Dave", 7, "Bob", 7, "Alice", 2);
+		restored2.setDateSaved(500);
+		dbHelper.saveGame(restored2, false);
+		games.add(restored2);
+		checkRatings();
+	}
+
+	public void testTiedGames() {
+		saveNewGame(createGameStartedAt(100, "Alice", 10, "Bob", 5));
+		checkRatings();
+
+		// nobody's rating changes for a game where everybody is tied
+		saveNewGame(createGameStartedAt(200, "Alice", 4, "Bob", 4, "Carol", 4));
+		checkRatings();
+		assertEquals(RatingEngine.INITIAL_RATING, findRating("carol"), DELTA);
+
+		// but a tie for the lead still counts
+		saveNewGame(createGameStartedAt(300, "Alice", 4, "Bob", 4, "Carol", 0));
+		checkRatings();
+	}
+
+	public void testRandomChanges() {
+		for (int i = 0; i < 80; i++) {
+			int action = games.isEmpty() ? 0 : random.nextInt(4);
+			if (action == 0 || action == 1) {
+				// few enough distinct dates that some games start at the same time
+				saveNewGame(createRandomGame(random.nextInt(20)));
+			} else if (action == 2) {
+				Game game = games.get(random.nextInt(games.size()));
+				for (PlayerScore playerScore : game.getPlayerScores()) {
+					playerScore.setScore(random.nextInt(5));
+				}
+				dbHelper.saveGame(game);
+			} else {
+				deleteGame(games.get(random.nextInt(games.size())));
+			}
+
+			// sometimes several changes pile up before the ratings are read
+			if (random.nextInt(3) == 0) {
+				checkRatings();
+			}
+		}
+		checkRatings();
+	}
+
+	/**
+	 * Check the stored ratings against the ratings worked out by rating every game from scratch, in the order the
+	 * games were started.
+	 */
+	private void checkRatings() {
+		List<Game> sortedGames = new ArrayList<Game>(games);
+		Collections.sort(sortedGames, new Comparator<Game>() {
+
+			@Override
+			public int compare(Game lhs, Game rhs) {
+				if (lhs.getDateStarted() != rhs.getDateStarted()) {
+					return lhs.getDateStarted() < rhs.getDateStarted() ? -1 : 1;
+				}
+				return lhs.getId() - rhs.getId();
+			}
+		});
+		RatingEngine ratingEngine = new RatingEngine();
+		Map<String, Double> expected = new HashMap<String, Double>();
+		for (Game game : sortedGames) {
+			List<PlayerGameStats> gameStats = PlayerGameStats.fromGame(game);
+			ratingEngine.rateGame(gameStats);
+			for (PlayerGameStats stats : gameStats) {
+				expected.put(stats.getPlayerKey(), ratingEngine.getRating(stats.getPlayerKey()));
+			}
+		}
+
+		List<PlayerStats> actual = dbHelper.findAllPlayerStats();
+		assertEquals(expected.size(), actual.size());
+		for (PlayerStats stats : actual) {
+			String playerKey = toPlayerKey(stats.getName());
+			assertNotNull(playerKey, expected.get(playerKey));
+			assertEquals(playerKey, expected.get(playerKey), stats.getRating(), DELTA);
+		}
+	}
+
+	private Double findRating(String playerKey) {
+		for (PlayerStats stats : dbHelper.findAllPlayerStats()) {
+			if (toPlayerKey(stats.getName()).equals(playerKey)) {
+				return stats.getRating();
+			}
+		}
+		return null;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+import android.os.Parcel;
 import android.test.ActivityInstrumentationTestCase2;
 
 import com.nolanlawson.keepscore.MainActivity;
@@ -14,7 +15,7 @@ import com.nolanlawson.keepscore.serialization.GamesBackup;
 import com.nolanlawson.keepscore.serialization.GamesBackupSerializer;
 
 /**
- * Tests for the XML serialization.
+ * Tests for the XML serialization, and for the Parcelable encoding.
  * @author nolan
  *
  */
@@ -59,6 +60,22 @@ public class SerializationTest extends ActivityInstrumentationTestCase2<MainActi
 		testGamesBackup(gamesBackup);
 	}
 	
+	public void testParcel() {
+		GamesBackup gamesBackup = createRandomGamesBackup();
+		gamesBackup.getGames().get(0).getPlayerScores().get(0).setHistory(new ArrayList<Integer>());
+		
+		for (Game game : gamesBackup.getGames()) {
+			Parcel parcel = Parcel.obtain();
+			try {
+				game.writeToParcel(parcel, 0);
+				parcel.setDataPosition(0);
+				compareGames(game, Game.CREATOR.createFromParcel(parcel));
+			} finally {
+				parcel.recycle();
+			}
+		}
+	}
+	
 	private void testGamesBackup(GamesBackup gamesBackup) {
 		
 		String xmlData = GamesBackupSerializer.serialize(gamesBackup);